@@ -0,0 +1,27 @@
+package NFA031.LotoJava.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Lancement des mesures de performance avec le profileur "gc" (taux d'allocation).
+ * Les options JMH habituelles peuvent être passées en ligne de commande
+ * (par exemple un filtre sur le nom des mesures: "Grille").
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class BenchmarkRunner {
+
+    public static void main ( String args[] ) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+}
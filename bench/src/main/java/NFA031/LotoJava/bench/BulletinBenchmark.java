@@ -0,0 +1,65 @@
+package NFA031.LotoJava.bench;
+
+import NFA031.LotoJava.Bulletin;
+import NFA031.LotoJava.Grille;
+import NFA031.LotoJava.RandomSource;
+import NFA031.LotoJava.SplittableRandomSource;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mesures sur un bulletin: création avec un nombre aléatoire de grilles (nouvel objet ou
+ * objet réutilisé), et mise en forme texte.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BulletinBenchmark {
+
+    private RandomSource source;
+    private Grille gagnante;
+    private Bulletin bulletin;
+    private int compteur = 1;
+
+    @Setup
+    public void preparer () {
+        this.source = new SplittableRandomSource(42L);
+        this.gagnante = new Grille(Grille.NB_NUMEROS_MIN, Grille.CHANCE_NB_NUMEROS_MIN, this.source);
+        this.bulletin = new Bulletin(1, Bulletin.NB_MAX_GRILLES, this.gagnante, this.source);
+    }
+
+    @Benchmark
+    public Bulletin creerBulletin () {
+        return new Bulletin(this.compteur++, (byte) 0, this.gagnante, this.source);
+    }
+
+    @Benchmark
+    public Bulletin regenererBulletin () {
+        this.bulletin.regenerer(this.compteur++, (byte) 0, this.gagnante, this.source);
+        return this.bulletin;
+    }
+
+    @Benchmark
+    public String bulletinToString () {
+        return this.bulletin.toString();
+    }
+
+    @Benchmark
+    public String grilleToString () {
+        return this.bulletin.getGrille(0).toString();
+    }
+
+}
@@ -0,0 +1,54 @@
+package NFA031.LotoJava.bench;
+
+import NFA031.LotoJava.DrawEngine;
+import NFA031.LotoJava.DrawTotals;
+import NFA031.LotoJava.Grille;
+import NFA031.LotoJava.SplittableRandomSource;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mesures d'un tirage complet (génération et comptage des bulletins), en parallèle et en séquentiel.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DrawBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int nbBulletins;
+
+    private Grille gagnante;
+    private DrawEngine moteur;
+
+    @Setup
+    public void preparer () {
+        this.gagnante = new Grille(Grille.NB_NUMEROS_MIN, Grille.CHANCE_NB_NUMEROS_MIN, new SplittableRandomSource(42L));
+        this.moteur = new DrawEngine(42L);
+    }
+
+    @Benchmark
+    public DrawTotals tirageParallele () {
+        return this.moteur.executer(1, this.nbBulletins, this.gagnante);
+    }
+
+    @Benchmark
+    public DrawTotals tirageSequentiel () {
+        return this.moteur.executerSequentiel(1, this.nbBulletins, this.gagnante, null);
+    }
+
+}
@@ -0,0 +1,71 @@
+package NFA031.LotoJava.bench;
+
+import NFA031.LotoJava.Grille;
+import NFA031.LotoJava.RandomSource;
+import NFA031.LotoJava.SplittableRandomSource;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Mesures sur une grille: création pour chaque couple (numéros, numéros chance),
+ * comparaison à la grille gagnante et calcul du rang.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GrilleBenchmark {
+
+    @Param({"5", "6", "7", "8", "9"})
+    public byte nbNumeros;
+
+    @Param({"1", "2", "3", "4", "5", "6", "7", "8", "9", "10"})
+    public byte nbNumerosChance;
+
+    private RandomSource source;
+    private Grille gagnante;
+    private Grille grille;
+
+    @Setup
+    public void preparer () {
+        this.source = new SplittableRandomSource(42L);
+        this.gagnante = new Grille(Grille.NB_NUMEROS_MIN, Grille.CHANCE_NB_NUMEROS_MIN, this.source);
+        this.grille = new Grille(this.nbNumeros, this.nbNumerosChance, this.source);
+    }
+
+    @Benchmark
+    public Grille creerGrille () {
+        return new Grille(this.nbNumeros, this.nbNumerosChance, this.source);
+    }
+
+    @Benchmark
+    public byte setGrilleGagnante () {
+        this.grille.setGrilleGagnante(this.gagnante);
+        return this.grille.getRang();
+    }
+
+    @Benchmark
+    public void calculRangGagnant ( Blackhole trou ) {
+        byte m, c;
+        for ( m = 0; m <= Grille.NB_NUMEROS_MIN; m++ ) {
+            for ( c = 0; c <= 1; c++ ) {
+                trou.consume(Grille.calculRangGagnant(m, c));
+            }
+        }
+    }
+
+}
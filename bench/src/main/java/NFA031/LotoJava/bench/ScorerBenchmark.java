@@ -0,0 +1,84 @@
+package NFA031.LotoJava.bench;
+
+import NFA031.LotoJava.GridScorer;
+import NFA031.LotoJava.Grille;
+import NFA031.LotoJava.RandomSource;
+import NFA031.LotoJava.ScalarGridScorer;
+import NFA031.LotoJava.SplittableRandomSource;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mesures du calcul des rangs d'un million de grilles: grille par grille (objets Grille),
+ * par lots en scalaire, et par lots en vectoriel (module jdk.incubator.vector).
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class ScorerBenchmark {
+
+    private final static int NB_GRILLES = 1000000;
+
+    private Grille grilles[];
+    private long masquesNumeros[];
+    private short masquesNumerosChance[];
+    private byte rangs[];
+    private Grille gagnante;
+    private GridScorer scalaire;
+    private GridScorer vectoriel;
+
+    @Setup
+    public void preparer () {
+        RandomSource source = new SplittableRandomSource(42L);
+        byte n;
+        int i;
+
+        this.grilles = new Grille[NB_GRILLES];
+        this.masquesNumeros = new long[NB_GRILLES];
+        this.masquesNumerosChance = new short[NB_GRILLES];
+        this.rangs = new byte[NB_GRILLES];
+        for ( i = 0; i < NB_GRILLES; i++ ) {
+            n = Grille.getRandomNbNumeros(source);
+            this.grilles[i] = new Grille(n, Grille.getRandomNbNumerosChance(n, source), source);
+            this.masquesNumeros[i] = this.grilles[i].getMasqueNumeros();
+            this.masquesNumerosChance[i] = this.grilles[i].getMasqueNumerosChance();
+        }
+        this.gagnante = new Grille(Grille.NB_NUMEROS_MIN, Grille.CHANCE_NB_NUMEROS_MIN, source);
+        this.scalaire = new ScalarGridScorer();
+        this.vectoriel = GridScorer.creer();
+    }
+
+    @Benchmark
+    public Grille[] rangsParObjet () {
+        for ( Grille grille : this.grilles ) {
+            grille.setGrilleGagnante(this.gagnante);
+        }
+        return this.grilles;
+    }
+
+    @Benchmark
+    public byte[] rangsParLotScalaire () {
+        this.scalaire.scorer(this.masquesNumeros, this.masquesNumerosChance, 0, NB_GRILLES, this.gagnante, this.rangs);
+        return this.rangs;
+    }
+
+    @Benchmark
+    public byte[] rangsParLotVectoriel () {
+        this.vectoriel.scorer(this.masquesNumeros, this.masquesNumerosChance, 0, NB_GRILLES, this.gagnante, this.rangs);
+        return this.rangs;
+    }
+
+}
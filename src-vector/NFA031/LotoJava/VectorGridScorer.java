@@ -0,0 +1,87 @@
+package NFA031.LotoJava;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Calcul vectoriel des rangs d'un lot de grilles (module jdk.incubator.vector).
+ * Chaque instruction traite autant de grilles que le registre contient de long:
+ * intersection avec la grille gagnante, comptage des bits (méthode SWAR, le
+ * comptage direct n'existant pas en Java 17) et test du numéro chance donnent
+ * la clé de la table des rangs. Les clés sont rangées en octets directement dans
+ * le tableau des rangs (sans tampon intermédiaire), puis remplacées par leur rang
+ * en un seul passage sur le lot.
+ * Compilée à part (dossier src-vector, option --add-modules jdk.incubator.vector),
+ * la classe ne se charge que si elle et le module sont présents: passer par GridScorer.creer().
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+class VectorGridScorer implements GridScorer {
+
+    private static final VectorSpecies<Long> ESPECE = LongVector.SPECIES_PREFERRED;
+    // Espèce des masques chance: autant de cases que l'espèce des masques de numéros
+    private static final VectorSpecies<Short> ESPECE_CHANCE;
+    // Espèce des rangs: au moins autant de cases que l'espèce des masques de numéros (64 bits au minimum)
+    private static final VectorSpecies<Byte> ESPECE_RANGS = VectorSpecies.of(byte.class,
+            VectorShape.forBitSize(Math.max(Long.SIZE, ESPECE.length() * Byte.SIZE)));
+
+    static {
+        VectorSpecies<Short> espece = null;
+        try {
+            espece = VectorSpecies.of(short.class, VectorShape.forBitSize(ESPECE.length() * Short.SIZE));
+        } catch ( IllegalArgumentException e ) {
+            // Registres trop courts (moins de 4 long): pas de forme de vecteur adaptée
+        }
+        ESPECE_CHANCE = espece;
+    }
+
+    /**
+     * Constructeur.
+     * @throws UnsupportedOperationException Si les registres vectoriels sont trop courts.
+     */
+    VectorGridScorer () {
+        if ( ESPECE_CHANCE == null ) {
+            throw new UnsupportedOperationException("Registres vectoriels trop courts (" + ESPECE.length() + " long).");
+        }
+    }
+
+    @Override
+    public void scorer ( long masquesNumeros[], short masquesNumerosChance[], int debut, int nb, Grille gagnante,
+            byte rangs[] ) {
+        long masque = gagnante.getMasqueNumeros();
+        short masqueChance = gagnante.getMasqueNumerosChance();
+        int i, fin = debut + nb, finVecteurs;
+        LongVector x, chance;
+        VectorMask<Long> trouve;
+
+        // Un vecteur de rangs peut avoir plus de cases que de grilles traitées: les cases
+        // en trop, réécrites par le vecteur suivant, doivent rester avant la fin du lot
+        finVecteurs = debut + ESPECE.loopBound(Math.max(0, nb - (ESPECE_RANGS.length() - ESPECE.length())));
+
+        for ( i = debut; i < finVecteurs; i += ESPECE.length() ) {
+            // Numéros trouvés: comptage des bits par additions de champs de 2, 4, 8 bits
+            x = LongVector.fromArray(ESPECE, masquesNumeros, i).and(masque);
+            x = x.sub(x.lanewise(VectorOperators.LSHR, 1).and(0x5555555555555555L));
+            x = x.and(0x3333333333333333L).add(x.lanewise(VectorOperators.LSHR, 2).and(0x3333333333333333L));
+            x = x.add(x.lanewise(VectorOperators.LSHR, 4)).and(0x0F0F0F0F0F0F0F0FL);
+            x = x.mul(0x0101010101010101L).lanewise(VectorOperators.LSHR, 56);
+            // Numéro chance trouvé: clé = numéros trouvés * 2 + 1
+            chance = (LongVector) ShortVector.fromArray(ESPECE_CHANCE, masquesNumerosChance, i)
+                    .and(masqueChance)
+                    .convertShape(VectorOperators.S2L, ESPECE, 0);
+            trouve = chance.compare(VectorOperators.NE, 0L);
+            x = x.lanewise(VectorOperators.LSHL, 1).lanewise(VectorOperators.ADD, 1L, trouve);
+            x.convertShape(VectorOperators.L2B, ESPECE_RANGS, 0).reinterpretAsBytes().intoArray(rangs, i);
+        }
+        // Rang de chaque clé
+        for ( i = debut; i < finVecteurs; i++ ) {
+            rangs[i] = ScalarGridScorer.RANGS[rangs[i]];
+        }
+        // Dernières grilles (moins d'un vecteur de rangs)
+        ScalarGridScorer.scorerScalaire(masquesNumeros, masquesNumerosChance, finVecteurs, fin, masque, masqueChance, rangs);
+    }
+
+}
@@ -0,0 +1,203 @@
+package NFA031.LotoJava;
+
+/**
+ * Calcul exact des espérances d'un tirage, sans simulation.
+ * Pour une grille de n numéros et c numéros chance, le nombre de numéros trouvés
+ * suit une loi hypergéométrique (5 numéros gagnants parmi 49, 1 numéro chance
+ * parmi 10), et chaque couple (numéros trouvés, numéros chance trouvés) donne,
+ * par TableRangs, les combinaisons gagnantes de chaque rang. Les espérances sont
+ * ensuite pondérées par la loi des tailles aléatoires des grilles et des bulletins
+ * (Grille.getRandomNbNumeros(), Grille.getRandomNbNumerosChance(), Bulletin).
+ * Les variances permettent de situer les totaux d'un tirage simulé par rapport
+ * aux valeurs attendues (écarts réduits).
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public final class AnalyticEngine {
+
+    /** Nombre de rangs de gain. */
+    public final static int NB_RANGS = TableRangs.NB_RANGS;
+
+    // Moments par taille de grille: espérance et moment d'ordre 2 des combinaisons gagnantes par rang
+    private final static double ESPERANCES[][][] = new double[Grille.NB_NUMEROS_MAX + 1][Grille.CHANCE_NB_NUMEROS_MAX + 1][];
+    private final static double MOMENTS2[][][] = new double[Grille.NB_NUMEROS_MAX + 1][Grille.CHANCE_NB_NUMEROS_MAX + 1][];
+    // Espérance et variance par bulletin aléatoire: combinaisons gagnantes par rang, puis mise (dernière case)
+    private final static double ESPERANCE_BULLETIN[] = new double[NB_RANGS + 1];
+    private final static double VARIANCE_BULLETIN[] = new double[NB_RANGS + 1];
+
+    static {
+        int n, c, m, cm, r, nbTailles, maxChance;
+        long casNumeros, casChance;
+        double p, pTaille, x, moyenneGrille[] = new double[NB_RANGS + 1], moment2Grille[] = new double[NB_RANGS + 1];
+        double moyenneK, varianceK;
+
+        for ( n = Grille.NB_NUMEROS_MIN; n <= Grille.NB_NUMEROS_MAX; n++ ) {
+            casNumeros = Combinatoire.combinaisons(Grille.NUMERO_MAX, n);
+            for ( c = Grille.CHANCE_NB_NUMEROS_MIN; c <= Grille.CHANCE_NB_NUMEROS_MAX; c++ ) {
+                casChance = Combinatoire.combinaisons(Grille.CHANCE_NUMERO_MAX, c);
+                ESPERANCES[n][c] = new double[NB_RANGS];
+                MOMENTS2[n][c] = new double[NB_RANGS];
+                for ( m = 0; m <= Math.min(n, Grille.NB_NUMEROS_MIN); m++ ) {
+                    for ( cm = 0; cm <= Math.min(c, Grille.CHANCE_NB_NUMEROS_MIN); cm++ ) {
+                        // Loi hypergéométrique des numéros et des numéros chance trouvés
+                        p = (double) (Combinatoire.combinaisons(Grille.NB_NUMEROS_MIN, m)
+                                * Combinatoire.combinaisons(Grille.NUMERO_MAX - Grille.NB_NUMEROS_MIN, n - m)) / casNumeros
+                            * (double) (Combinatoire.combinaisons(Grille.CHANCE_NB_NUMEROS_MIN, cm)
+                                * Combinatoire.combinaisons(Grille.CHANCE_NUMERO_MAX - Grille.CHANCE_NB_NUMEROS_MIN, c - cm)) / casChance;
+                        for ( r = 1; r <= NB_RANGS; r++ ) {
+                            x = TableRangs.getNbCombinaisons(TableRangs.index(n, m, c, cm), r);
+                            ESPERANCES[n][c][r - 1] += p * x;
+                            MOMENTS2[n][c][r - 1] += p * x * x;
+                        }
+                    }
+                }
+            }
+        }
+
+        // Grille aléatoire: n uniforme, puis c uniforme jusqu'au maximum permis par n
+        nbTailles = Grille.NB_NUMEROS_MAX - Grille.NB_NUMEROS_MIN + 1;
+        for ( n = Grille.NB_NUMEROS_MIN; n <= Grille.NB_NUMEROS_MAX; n++ ) {
+            maxChance = Grille.getMaxNbNumerosChance((byte) n);
+            for ( c = Grille.CHANCE_NB_NUMEROS_MIN; c <= maxChance; c++ ) {
+                pTaille = 1.0D / nbTailles / (maxChance - Grille.CHANCE_NB_NUMEROS_MIN + 1);
+                for ( r = 0; r < NB_RANGS; r++ ) {
+                    moyenneGrille[r] += pTaille * ESPERANCES[n][c][r];
+                    moment2Grille[r] += pTaille * MOMENTS2[n][c][r];
+                }
+                x = Grille.getMise((byte) n, (byte) c);
+                moyenneGrille[NB_RANGS] += pTaille * x;
+                moment2Grille[NB_RANGS] += pTaille * x * x;
+            }
+        }
+
+        // Bulletin aléatoire: somme de K grilles indépendantes, K uniforme
+        // E[S] = E[K] E[X], Var[S] = E[K] Var[X] + Var[K] E[X]²
+        nbTailles = Bulletin.NB_MAX_GRILLES - Bulletin.NB_MIN_GRILLES + 1;
+        moyenneK = (Bulletin.NB_MIN_GRILLES + Bulletin.NB_MAX_GRILLES) / 2.0D;
+        varianceK = ((double) nbTailles * nbTailles - 1.0D) / 12.0D;
+        for ( r = 0; r <= NB_RANGS; r++ ) {
+            ESPERANCE_BULLETIN[r] = moyenneK * moyenneGrille[r];
+            VARIANCE_BULLETIN[r] = moyenneK * (moment2Grille[r] - moyenneGrille[r] * moyenneGrille[r])
+                    + varianceK * moyenneGrille[r] * moyenneGrille[r];
+        }
+    }
+
+    // Classe utilitaire: pas d'instance
+    private AnalyticEngine () {
+    }
+
+    /**
+     * Retourne le nombre moyen de combinaisons gagnantes par rang d'une grille de taille donnée.
+     * Pour une grille simple (5 numéros, 1 numéro chance), ce sont les probabilités de chaque rang.
+     * @param nbNumeros Le nombre de numéros cochés.
+     * @param nbNumerosChance Le nombre de numéros chance cochés.
+     * @return Les espérances par rang (index 0 pour le rang 1).
+     * @throws IndexOutOfBoundsException Si la taille de grille est hors limites.
+     */
+    public static double[] getGagnantsParGrille ( byte nbNumeros, byte nbNumerosChance ) {
+        if ( nbNumeros < Grille.NB_NUMEROS_MIN || nbNumeros > Grille.NB_NUMEROS_MAX
+                || nbNumerosChance < Grille.CHANCE_NB_NUMEROS_MIN || nbNumerosChance > Grille.CHANCE_NB_NUMEROS_MAX ) {
+            throw new IndexOutOfBoundsException("La taille de grille (" + nbNumeros + ", " + nbNumerosChance + ") "
+                    + "est hors limites.");
+        }
+        return ESPERANCES[nbNumeros][nbNumerosChance].clone();
+    }
+
+    /**
+     * Retourne la probabilité de chaque rang pour une grille simple.
+     * @return Les probabilités par rang (index 0 pour le rang 1).
+     */
+    public static double[] getProbabilitesRang () {
+        return getGagnantsParGrille(Grille.NB_NUMEROS_MIN, Grille.CHANCE_NB_NUMEROS_MIN);
+    }
+
+    /**
+     * Retourne le nombre attendu de combinaisons gagnantes par rang pour des bulletins aléatoires.
+     * @param nbBulletins Le nombre de bulletins joués.
+     * @return Les espérances par rang (index 0 pour le rang 1).
+     */
+    public static double[] getGagnantsAttendus ( long nbBulletins ) {
+        double gagnants[] = new double[NB_RANGS];
+        int r;
+
+        for ( r = 0; r < NB_RANGS; r++ ) {
+            gagnants[r] = nbBulletins * ESPERANCE_BULLETIN[r];
+        }
+        return gagnants;
+    }
+
+    /**
+     * Retourne le total attendu des mises pour des bulletins aléatoires.
+     * @param nbBulletins Le nombre de bulletins joués.
+     * @return L'espérance du total des mises, en euros.
+     */
+    public static double getTotalMisesAttendu ( long nbBulletins ) {
+        return nbBulletins * ESPERANCE_BULLETIN[NB_RANGS];
+    }
+
+    /**
+     * Retourne la part attendue des mises revenant à chaque rang.
+     * @param nbBulletins Le nombre de bulletins joués.
+     * @return Les espérances par rang, en euros (index 0 pour le rang 1).
+     */
+    public static double[] getMisesAttendues ( long nbBulletins ) {
+        double mises[] = new double[NB_RANGS];
+        double total = getTotalMisesAttendu(nbBulletins);
+        int r;
+
+        for ( r = 0; r < NB_RANGS; r++ ) {
+            mises[r] = Loto.PARTS_MISES_EXACTES[r].doubleValue() * total;
+        }
+        return mises;
+    }
+
+    /**
+     * Retourne le gain attendu par combinaison gagnante de chaque rang, approché par le
+     * rapport des espérances (part des mises attendue / nombre de gagnants attendu).
+     * L'approximation est bonne quand les gagnants du rang sont nombreux.
+     * @param nbBulletins Le nombre de bulletins joués.
+     * @return Les gains par combinaison, en euros (index 0 pour le rang 1).
+     */
+    public static double[] getGainsAttendus ( long nbBulletins ) {
+        double gains[] = getMisesAttendues(nbBulletins), gagnants[] = getGagnantsAttendus(nbBulletins);
+        int r;
+
+        for ( r = 0; r < NB_RANGS; r++ ) {
+            gains[r] = gagnants[r] > 0.0D ? gains[r] / gagnants[r] : Double.NaN;
+        }
+        return gains;
+    }
+
+    /**
+     * Compare les gagnants d'un tirage aux valeurs attendues: pour chaque rang,
+     * (observé - attendu) / écart type. Des valeurs au-delà de 3 ou 4 en valeur
+     * absolue signalent un écart anormal entre la simulation et la théorie.
+     * @param totaux Les totaux du tirage (bulletins aléatoires).
+     * @return Les écarts réduits par rang (index 0 pour le rang 1).
+     */
+    public static double[] getEcartsReduits ( DrawTotals totaux ) {
+        double ecarts[] = new double[NB_RANGS];
+        long gagnants[] = totaux.getGagnantsParRang();
+        long nb = totaux.getNbBulletins();
+        int r;
+
+        for ( r = 0; r < NB_RANGS; r++ ) {
+            ecarts[r] = ecartReduit(gagnants[r], nb, r);
+        }
+        return ecarts;
+    }
+
+    /**
+     * Compare le total des mises d'un tirage à la valeur attendue.
+     * @param totaux Les totaux du tirage (bulletins aléatoires).
+     * @return L'écart réduit du total des mises.
+     */
+    public static double getEcartReduitMises ( DrawTotals totaux ) {
+        return ecartReduit(totaux.getTotalMises(), totaux.getNbBulletins(), NB_RANGS);
+    }
+
+    /** Écart réduit d'une somme observée sur nb bulletins, pour une case des moments par bulletin. */
+    private static double ecartReduit ( double observe, long nb, int i ) {
+        return (observe - nb * ESPERANCE_BULLETIN[i]) / Math.sqrt(nb * VARIANCE_BULLETIN[i]);
+    }
+
+}
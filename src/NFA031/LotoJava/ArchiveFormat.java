@@ -0,0 +1,145 @@
+package NFA031.LotoJava;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Description du format binaire d'archive des grilles d'un tirage.
+ * <pre>
+ * En-tête (32 octets):
+ *   int   signature "LOTO"
+ *   short version du format
+ *   short version du règlement (Loto.VERSION_REGLES)
+ *   int   date du tirage (aaaammjj, voir DateTirage; 0 si aucune)
+ *   int   réservé
+ *   long  graine du tirage
+ *   long  nombre de grilles
+ * Puis un enregistrement de 16 octets par grille:
+ *   long  masque des numéros
+ *   long  identifiant du bulletin (48 bits) et masque des numéros chance (16 bits)
+ * </pre>
+ * Toutes les valeurs sont écrites en petit-boutiste.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public final class ArchiveFormat {
+
+    /** Signature en début de fichier ("LOTO"). */
+    public final static int SIGNATURE = 0x4C4F544F;
+    /** Version du format. */
+    public final static short VERSION = 1;
+    /** Ordre des octets. */
+    public final static ByteOrder ORDRE = ByteOrder.LITTLE_ENDIAN;
+    /** Taille de l'en-tête, en octets. */
+    public final static int TAILLE_EN_TETE = 32;
+    /** Taille d'un enregistrement de grille, en octets. */
+    public final static int TAILLE_GRILLE = 16;
+    /** Position du nombre de grilles dans l'en-tête. */
+    public final static int POSITION_NB_GRILLES = 24;
+    /** Plus grand identifiant de bulletin enregistrable (48 bits). */
+    public final static long ID_MAX = (1L << 48) - 1;
+
+    // Classe utilitaire: pas d'instance
+    private ArchiveFormat () {
+    }
+
+    /**
+     * Regroupe l'identifiant du bulletin et le masque des numéros chance dans un long.
+     * @param idBulletin L'identifiant du bulletin.
+     * @param masqueNumerosChance Le masque des numéros chance.
+     * @return La valeur regroupée.
+     * @throws IllegalArgumentException Si l'identifiant n'est pas enregistrable.
+     */
+    public static long regrouper ( long idBulletin, short masqueNumerosChance ) {
+        if ( idBulletin < 0 || idBulletin > ID_MAX ) {
+            throw new IllegalArgumentException("L'identifiant de bulletin (" + idBulletin + ") "
+                    + "est hors limites (de 0 à " + ID_MAX + ").");
+        }
+        return (idBulletin << 16) | (masqueNumerosChance & 0xFFFFL);
+    }
+
+    /**
+     * Extrait l'identifiant du bulletin d'une valeur regroupée.
+     * @param regroupe La valeur regroupée.
+     * @return L'identifiant du bulletin.
+     */
+    public static long idBulletin ( long regroupe ) {
+        return regroupe >>> 16;
+    }
+
+    /**
+     * Extrait le masque des numéros chance d'une valeur regroupée.
+     * @param regroupe La valeur regroupée.
+     * @return Le masque des numéros chance.
+     */
+    public static short masqueNumerosChance ( long regroupe ) {
+        return (short) regroupe;
+    }
+
+    /**
+     * Indique si des masques décrivent une grille valide: numéros de NUMERO_MIN à
+     * NUMERO_MAX, numéros chance de CHANCE_NUMERO_MIN à CHANCE_NUMERO_MAX, et nombres
+     * de numéros cochés dans les limites du règlement.
+     * @param masqueNumeros Le masque des numéros.
+     * @param masqueNumerosChance Le masque des numéros chance.
+     * @return True si la grille est valide.
+     */
+    public static boolean estValide ( long masqueNumeros, short masqueNumerosChance ) {
+        int chance = masqueNumerosChance & 0xFFFF;
+        int nbNumeros = Long.bitCount(masqueNumeros), nbNumerosChance = Integer.bitCount(chance);
+
+        return Long.numberOfTrailingZeros(masqueNumeros) >= Grille.NUMERO_MIN
+                && 64 - Long.numberOfLeadingZeros(masqueNumeros) <= Grille.NUMERO_MAX + 1
+                && Integer.numberOfTrailingZeros(chance) >= Grille.CHANCE_NUMERO_MIN
+                && 32 - Integer.numberOfLeadingZeros(chance) <= Grille.CHANCE_NUMERO_MAX + 1
+                && nbNumeros >= Grille.NB_NUMEROS_MIN && nbNumeros <= Grille.NB_NUMEROS_MAX
+                && nbNumerosChance >= Grille.CHANCE_NB_NUMEROS_MIN && nbNumerosChance <= Grille.CHANCE_NB_NUMEROS_MAX;
+    }
+
+    /**
+     * Vérifie un enregistrement lu dans une archive.
+     * @param masqueNumeros Le masque des numéros.
+     * @param masqueNumerosChance Le masque des numéros chance.
+     * @param grille L'index de la grille dans l'archive.
+     * @throws IOException Si l'enregistrement ne décrit pas une grille valide (archive corrompue).
+     */
+    static void verifier ( long masqueNumeros, short masqueNumerosChance, long grille ) throws IOException {
+        if ( !estValide(masqueNumeros, masqueNumerosChance) ) {
+            throw new IOException("Archive corrompue: la grille " + grille + " n'est pas valide (numéros 0x"
+                    + Long.toHexString(masqueNumeros) + ", numéros chance 0x"
+                    + Integer.toHexString(masqueNumerosChance & 0xFFFF) + ").");
+        }
+    }
+
+    /**
+     * Compte des enregistrements de grilles consécutifs face à une grille gagnante.
+     * Les grilles d'un même bulletin se suivent: chaque changement d'identifiant
+     * compte un nouveau bulletin.
+     * @param enregistrements Les enregistrements (lus de la position 0 à fin, en ORDRE).
+     * @param fin La position de fin des enregistrements, en octets.
+     * @param premiereGrille L'index dans l'archive de la grille en position 0.
+     * @param gagnante La grille gagnante.
+     * @param totaux Les totaux à alimenter.
+     * @param idPrecedent L'identifiant du bulletin de l'enregistrement précédent (-1 au début).
+     * @return L'identifiant du bulletin du dernier enregistrement compté.
+     * @throws IOException Si un enregistrement ne décrit pas une grille valide (archive corrompue).
+     */
+    static long compter ( ByteBuffer enregistrements, int fin, long premiereGrille, Grille gagnante, DrawTotals totaux,
+            long idPrecedent ) throws IOException {
+        long masqueNumeros, regroupe;
+        int position;
+
+        for ( position = 0; position < fin; position += TAILLE_GRILLE ) {
+            masqueNumeros = enregistrements.getLong(position);
+            regroupe = enregistrements.getLong(position + 8);
+            verifier(masqueNumeros, masqueNumerosChance(regroupe), premiereGrille + position / TAILLE_GRILLE);
+            totaux.ajouterGrille(masqueNumeros, masqueNumerosChance(regroupe), gagnante);
+            if ( idBulletin(regroupe) != idPrecedent ) {
+                idPrecedent = idBulletin(regroupe);
+                totaux.ajouterNbBulletins(1L);
+            }
+        }
+        return idPrecedent;
+    }
+
+}
@@ -0,0 +1,226 @@
+package NFA031.LotoJava;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lecture d'une archive binaire de grilles (voir ArchiveFormat) par projection en mémoire.
+ * Les grilles sont lues directement dans le fichier projeté, par index ou par
+ * parcours, sans recréer d'objets Bulletin ou Grille. Chaque enregistrement lu
+ * est vérifié: une grille invalide signale une archive corrompue.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class ArchiveReader implements Closeable {
+
+    // Nombre de grilles par segment projeté (un segment fait au plus 1 Go)
+    private final static int GRILLES_PAR_SEGMENT = (1 << 30) / ArchiveFormat.TAILLE_GRILLE;
+
+    // Fichier de l'archive
+    private final FileChannel canal;
+    // Segments projetés des enregistrements
+    private final MappedByteBuffer segments[];
+    // Informations de l'en-tête
+    private final short versionRegles;
+    private final DateTirage dateTirage;
+    private final long graine;
+    private final long nbGrilles;
+
+    /**
+     * Constructeur: ouvre l'archive, vérifie son en-tête et projette les enregistrements.
+     * @param fichier Le chemin du fichier d'archive.
+     * @throws IOException Si le fichier ne peut pas être lu ou n'est pas une archive valide.
+     */
+    public ArchiveReader ( Path fichier ) throws IOException {
+        ByteBuffer enTete = ByteBuffer.allocate(ArchiveFormat.TAILLE_EN_TETE).order(ArchiveFormat.ORDRE);
+        int i;
+        long debut;
+
+        this.canal = FileChannel.open(fichier, StandardOpenOption.READ);
+        try {
+            while ( enTete.hasRemaining() && this.canal.read(enTete) >= 0 ) {
+                // Lecture complète de l'en-tête
+            }
+            enTete.flip();
+            if ( enTete.remaining() < ArchiveFormat.TAILLE_EN_TETE || enTete.getInt() != ArchiveFormat.SIGNATURE ) {
+                throw new IOException("Le fichier " + fichier + " n'est pas une archive de tirage.");
+            }
+            if ( enTete.getShort() != ArchiveFormat.VERSION ) {
+                throw new IOException("La version du format de l'archive " + fichier + " n'est pas prise en charge.");
+            }
+            this.versionRegles = enTete.getShort();
+            this.dateTirage = lireDate(enTete.getInt(), fichier);
+            enTete.getInt();
+            this.graine = enTete.getLong();
+            this.nbGrilles = enTete.getLong();
+            if ( this.nbGrilles < 0 ) {
+                throw new IOException("Le nombre de grilles de l'archive " + fichier + " (" + this.nbGrilles + ") "
+                        + "est négatif.");
+            }
+            // Comparaison par division: la taille attendue peut dépasser la capacité d'un long
+            if ( this.nbGrilles > (this.canal.size() - ArchiveFormat.TAILLE_EN_TETE) / ArchiveFormat.TAILLE_GRILLE ) {
+                throw new IOException("L'archive " + fichier + " est tronquée.");
+            }
+
+            this.segments = new MappedByteBuffer[(int) ((this.nbGrilles + GRILLES_PAR_SEGMENT - 1) / GRILLES_PAR_SEGMENT)];
+            for ( i = 0; i < this.segments.length; i++ ) {
+                debut = (long) i * GRILLES_PAR_SEGMENT;
+                this.segments[i] = this.canal.map(FileChannel.MapMode.READ_ONLY,
+                        ArchiveFormat.TAILLE_EN_TETE + debut * ArchiveFormat.TAILLE_GRILLE,
+                        Math.min(GRILLES_PAR_SEGMENT, this.nbGrilles - debut) * ArchiveFormat.TAILLE_GRILLE);
+                this.segments[i].order(ArchiveFormat.ORDRE);
+            }
+        } catch ( IOException | RuntimeException e ) {
+            this.canal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Lit la date du tirage de l'en-tête.
+     * @return La date, ou null si l'archive n'en a pas.
+     * @throws IOException Si la valeur n'est pas une date valide.
+     */
+    private static DateTirage lireDate ( int valeur, Path fichier ) throws IOException {
+        if ( valeur == 0 ) {
+            return null;
+        }
+        try {
+            return DateTirage.depuis(valeur);
+        } catch ( IllegalArgumentException e ) {
+            throw new IOException("La date de l'archive " + fichier + " (" + valeur + ") n'est pas valide.", e);
+        }
+    }
+
+    /**
+     * Retourne la version du règlement avec laquelle le tirage a été fait.
+     * @return La version du règlement.
+     */
+    public short getVersionRegles() {
+        return this.versionRegles;
+    }
+
+    /**
+     * Retourne la date du tirage.
+     * @return La date du tirage, ou null si l'archive n'en a pas.
+     */
+    public DateTirage getDateTirage() {
+        return this.dateTirage;
+    }
+
+    /**
+     * Retourne la graine du tirage.
+     * @return La graine du tirage.
+     */
+    public long getGraine() {
+        return this.graine;
+    }
+
+    /**
+     * Retourne le nombre de grilles de l'archive.
+     * @return Le nombre de grilles.
+     */
+    public long getNbGrilles() {
+        return this.nbGrilles;
+    }
+
+    /**
+     * Retourne le masque des numéros cochés d'une grille.
+     * @param grille L'index de la grille dans l'archive.
+     * @return Le masque des numéros cochés.
+     * @throws UncheckedIOException Si l'enregistrement de la grille est corrompu.
+     */
+    public long getMasqueNumeros( long grille ) {
+        this.getRegroupe(grille);   // Vérification de l'enregistrement
+        return this.getMasque(grille);
+    }
+
+    /**
+     * Retourne le masque des numéros chance cochés d'une grille.
+     * @param grille L'index de la grille dans l'archive.
+     * @return Le masque des numéros chance cochés.
+     * @throws UncheckedIOException Si l'enregistrement de la grille est corrompu.
+     */
+    public short getMasqueNumerosChance( long grille ) {
+        return ArchiveFormat.masqueNumerosChance(this.getRegroupe(grille));
+    }
+
+    /**
+     * Retourne l'identifiant du bulletin d'une grille.
+     * @param grille L'index de la grille dans l'archive.
+     * @return L'identifiant du bulletin.
+     * @throws UncheckedIOException Si l'enregistrement de la grille est corrompu.
+     */
+    public long getIdBulletin( long grille ) {
+        return ArchiveFormat.idBulletin(this.getRegroupe(grille));
+    }
+
+    /** Lit la première moitié (masque des numéros) d'un enregistrement. */
+    private long getMasque ( long grille ) {
+        this.verifierGrille(grille);
+        return this.segments[(int) (grille / GRILLES_PAR_SEGMENT)]
+                .getLong((int) (grille % GRILLES_PAR_SEGMENT) * ArchiveFormat.TAILLE_GRILLE);
+    }
+
+    /** Lit la seconde moitié (identifiant et numéros chance) d'un enregistrement, après vérification. */
+    private long getRegroupe ( long grille ) {
+        long regroupe;
+
+        this.verifierGrille(grille);
+        regroupe = this.segments[(int) (grille / GRILLES_PAR_SEGMENT)]
+                .getLong((int) (grille % GRILLES_PAR_SEGMENT) * ArchiveFormat.TAILLE_GRILLE + 8);
+        try {
+            ArchiveFormat.verifier(this.getMasque(grille), ArchiveFormat.masqueNumerosChance(regroupe), grille);
+        } catch ( IOException e ) {
+            throw new UncheckedIOException(e);
+        }
+        return regroupe;
+    }
+
+    /**
+     * Recompte toutes les grilles de l'archive face à une grille gagnante, par parcours
+     * séquentiel des segments projetés.
+     * @param gagnante La grille gagnante.
+     * @return Les totaux du tirage archivé.
+     * @throws IOException Si un enregistrement est corrompu.
+     */
+    public DrawTotals rescorer ( Grille gagnante ) throws IOException {
+        DrawTotals totaux = new DrawTotals();
+        ByteBuffer segment;
+        long idPrecedent = -1L;
+        int s;
+
+        for ( s = 0; s < this.segments.length; s++ ) {
+            segment = this.segments[s].duplicate().order(ArchiveFormat.ORDRE);
+            idPrecedent = ArchiveFormat.compter(segment, segment.limit(), (long) s * GRILLES_PAR_SEGMENT,
+                    gagnante, totaux, idPrecedent);
+        }
+        return totaux;
+    }
+
+    /**
+     * Vérifie qu'un index de grille est valide.
+     * @throws IndexOutOfBoundsException Si l'index est hors limites.
+     */
+    private void verifierGrille ( long grille ) {
+        if ( grille < 0 || grille >= this.nbGrilles ) {
+            throw new IndexOutOfBoundsException("La grille demandée (" + grille + ") "
+                    + "est hors limites (de 0 à " + (this.nbGrilles - 1) + ").");
+        }
+    }
+
+    /**
+     * Ferme le fichier de l'archive.
+     * @throws IOException Si la fermeture échoue.
+     */
+    @Override
+    public void close () throws IOException {
+        this.canal.close();
+    }
+
+}
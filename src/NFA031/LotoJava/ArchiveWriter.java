@@ -0,0 +1,123 @@
+package NFA031.LotoJava;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Écriture de l'archive binaire des grilles d'un tirage (voir ArchiveFormat).
+ * Les enregistrements sont accumulés dans un tampon direct puis écrits par blocs;
+ * le nombre de grilles est reporté dans l'en-tête à la fermeture.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class ArchiveWriter implements Consumer<Bulletin>, Closeable {
+
+    // Taille du tampon d'écriture (multiple de la taille d'un enregistrement)
+    private final static int TAILLE_TAMPON = ArchiveFormat.TAILLE_GRILLE * 4096;
+
+    // Fichier de l'archive
+    private final FileChannel canal;
+    // Tampon d'écriture
+    private final ByteBuffer tampon;
+    // Nombre de grilles écrites
+    private long nbGrilles = 0L;
+
+    /**
+     * Constructeur: crée (ou remplace) le fichier et écrit l'en-tête.
+     * @param fichier Le chemin du fichier d'archive.
+     * @param dateTirage La date du tirage (null si aucune).
+     * @param graine La graine du tirage.
+     * @throws IOException Si le fichier ne peut pas être créé.
+     */
+    public ArchiveWriter ( Path fichier, DateTirage dateTirage, long graine ) throws IOException {
+        this.canal = FileChannel.open(fichier, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.tampon = ByteBuffer.allocateDirect(TAILLE_TAMPON).order(ArchiveFormat.ORDRE);
+        this.tampon.putInt(ArchiveFormat.SIGNATURE)
+                .putShort(ArchiveFormat.VERSION)
+                .putShort(Loto.VERSION_REGLES)
+                .putInt(dateTirage != null ? dateTirage.getValeur() : 0)
+                .putInt(0)
+                .putLong(graine)
+                .putLong(0L);   // Nombre de grilles, reporté à la fermeture
+    }
+
+    /**
+     * Écrit toutes les grilles d'un bulletin.
+     * @param bulletin Le bulletin à archiver.
+     * @throws UncheckedIOException Si l'écriture échoue.
+     */
+    @Override
+    public void accept ( Bulletin bulletin ) {
+        Grille grille;
+        byte i;
+
+        for ( i = 0; i < bulletin.getNombreGrilles(); i++ ) {
+            grille = bulletin.getGrille(i);
+            this.ajouterGrille(bulletin.getId(), grille.getMasqueNumeros(), grille.getMasqueNumerosChance());
+        }
+    }
+
+    /**
+     * Écrit l'enregistrement d'une grille.
+     * @param idBulletin L'identifiant du bulletin de la grille.
+     * @param masqueNumeros Le masque des numéros cochés.
+     * @param masqueNumerosChance Le masque des numéros chance cochés.
+     * @throws IllegalArgumentException Si les masques ne décrivent pas une grille valide.
+     * @throws UncheckedIOException Si l'écriture échoue.
+     */
+    public void ajouterGrille ( long idBulletin, long masqueNumeros, short masqueNumerosChance ) {
+        if ( !ArchiveFormat.estValide(masqueNumeros, masqueNumerosChance) ) {
+            throw new IllegalArgumentException("La grille fournie n'est pas valide (numéros 0x"
+                    + Long.toHexString(masqueNumeros) + ", numéros chance 0x"
+                    + Integer.toHexString(masqueNumerosChance & 0xFFFF) + ").");
+        }
+        if ( this.tampon.remaining() < ArchiveFormat.TAILLE_GRILLE ) {
+            this.viderTampon();
+        }
+        this.tampon.putLong(masqueNumeros).putLong(ArchiveFormat.regrouper(idBulletin, masqueNumerosChance));
+        this.nbGrilles++;
+    }
+
+    /**
+     * Retourne le nombre de grilles écrites.
+     * @return Le nombre de grilles.
+     */
+    public long getNbGrilles() {
+        return this.nbGrilles;
+    }
+
+    /** Écrit le contenu du tampon dans le fichier. */
+    private void viderTampon () {
+        try {
+            this.tampon.flip();
+            while ( this.tampon.hasRemaining() ) {
+                this.canal.write(this.tampon);
+            }
+            this.tampon.clear();
+        } catch ( IOException e ) {
+            throw new UncheckedIOException("Écriture de l'archive impossible.", e);
+        }
+    }
+
+    /**
+     * Écrit les derniers enregistrements, reporte le nombre de grilles dans l'en-tête et ferme le fichier.
+     * @throws IOException Si l'écriture échoue.
+     */
+    @Override
+    public void close () throws IOException {
+        try {
+            this.viderTampon();
+            this.tampon.putLong(this.nbGrilles).flip();
+            this.canal.write(this.tampon, ArchiveFormat.POSITION_NB_GRILLES);
+        } finally {
+            this.canal.close();
+        }
+    }
+
+}
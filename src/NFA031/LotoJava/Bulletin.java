@@ -1,6 +1,6 @@
 package NFA031.LotoJava;
 
-import java.util.Random;
+import java.util.Arrays;
 
 /**
  * Classe représentant un bulletin de jeu de Loto.
@@ -15,13 +15,15 @@ public class Bulletin {
     public final static byte NB_MAX_GRILLES = 6;
     
     /** Identifiant. */
-    private int id = 0;
-    /** Tableau interne des grilles du bulletin. */
+    private long id = 0L;
+    /** Tableau interne des grilles du bulletin (seules les nbGrilles premières sont utilisées). */
     private Grille grilles[];
+    /** Nombre de grilles utilisées. */
+    private byte nbGrilles;
     /** Grille gagnante. */
     private Grille gagnante;
     /** Mise totale des grilles */
-    private short totalMises;
+    private int totalMises;
     
     /** Constructeur par défaut: création d'un bulletin complet. */
     public Bulletin () {
@@ -35,50 +37,121 @@ public class Bulletin {
      *                  Valeur entre Bulletin.minGrilles et Bulletin.maxGrilles.
      * @param gagnante Une grille gagnante à fournir pour les calculs de gain.
      */
-    public Bulletin ( int id,  byte nbGrilles, Grille gagnante ) {
+    public Bulletin ( long id,  byte nbGrilles, Grille gagnante ) {
+        this( id, nbGrilles, gagnante, new SplittableRandomSource() );
+    }
+    
+    /**
+     * Constructeur: création d'un bulletin avec un générateur aléatoire fourni.
+     * @param id L'identifiant à donner au bulletin.
+     * @param nbGrilles Nombre de grilles du bulletin à créer (0 pour un nombre aléatoire).
+     * @param gagnante Une grille gagnante à fournir pour les calculs de gain.
+     * @param r Le générateur aléatoire à utiliser.
+     */
+    public Bulletin ( long id,  byte nbGrilles, Grille gagnante, RandomSource r ) {
+        this.regenerer(id, nbGrilles, gagnante, r);
+    }
+    
+    /**
+     * Réutilise le bulletin: nouvel identifiant et nouveau tirage de ses grilles.
+     * Les objets Grille déjà créés sont réutilisés (recochés), seules les grilles
+     * manquantes sont allouées: un bulletin régénéré en boucle n'alloue plus rien.
+     * Consomme le générateur exactement comme le constructeur équivalent.
+     * @param id L'identifiant à donner au bulletin.
+     * @param nbGrilles Nombre de grilles du bulletin (0 pour un nombre aléatoire).
+     * @param gagnante Une grille gagnante à fournir pour les calculs de gain (peut être nulle).
+     * @param r Le générateur aléatoire à utiliser.
+     * @throws IndexOutOfBoundsException Si le nombre de grilles désiré est hors limites.
+     */
+    public void regenerer ( long id, byte nbGrilles, Grille gagnante, RandomSource r ) {
+        this.id = id > 0 ? id : 0L;
+        this.gagnante = gagnante;
+        if ( nbGrilles <= 0 ) {  // Bulletin random
+            this.create( (byte) 0, r );
+        } else {
+            this.create(nbGrilles, r);
+        }
+    }
+    
+    /**
+     * Constructeur: bulletin composé de grilles existantes (par exemple des grilles
+     * choisies par le joueur, voir Grille(byte[], byte[])).
+     * @param id L'identifiant à donner au bulletin.
+     * @param grilles Les grilles du bulletin (le tableau est copié).
+     * @param gagnante Une grille gagnante à fournir pour les calculs de gain (peut être nulle).
+     * @throws NullPointerException Si le tableau ou une des grilles fournies est nul.
+     * @throws IndexOutOfBoundsException Si le nombre de grilles est hors limites.
+     */
+    public Bulletin ( long id, Grille grilles[], Grille gagnante ) {
+        byte i;
+        
+        if ( grilles == null ) {
+            throw new NullPointerException("Les grilles fournies sont nulles !");
+        }
+        if ( grilles.length < Bulletin.NB_MIN_GRILLES || grilles.length > Bulletin.NB_MAX_GRILLES ) {
+            throw new IndexOutOfBoundsException("Le nombre de grilles fournies (" + grilles.length + ") "
+                    + "est hors limites (de " + Bulletin.NB_MIN_GRILLES + " à " + Bulletin.NB_MAX_GRILLES + ")");
+        }
+        for ( Grille grille : grilles ) {
+            if ( grille == null ) {
+                throw new NullPointerException("Une des grilles fournies est nulle !");
+            }
+        }
         if ( id > 0 ) {
             this.id = id;
         }
         this.gagnante = gagnante;
-        if ( nbGrilles <= 0 ) {  // Bulletin random
-            this.create( (byte) 0 );
-        } else {
-            this.create(nbGrilles);
+        this.grilles = Arrays.copyOf(grilles, Bulletin.NB_MAX_GRILLES);
+        this.nbGrilles = (byte) grilles.length;
+        this.totalMises = 0;
+        for ( i = 0; i < this.nbGrilles; i++ ) {
+            if ( this.gagnante != null ) {
+                this.grilles[i].setGrilleGagnante(this.gagnante);
+            }
+            this.totalMises += this.grilles[i].getMise();
         }
     }
     
     /**
      * Création d'un bulletin.
      * @param nbGrilles Nombre de grilles à créer dans le bulletin.
+     * @param r Le générateur aléatoire à utiliser.
      * @throws IndexOutOfBoundsException Si le nombre de grilles désiré est hors limites.
      */
-    private void create ( byte nbGrilles ) {
+    private void create ( byte nbGrilles, RandomSource r ) {
         boolean aleatoire = false;
         
         // Si le bulletin doit être généré aléatoirement
         if ( nbGrilles <= 0 ) {
             aleatoire = true;
-            Random r = new Random();
-            do {
-                nbGrilles = (byte) r.nextInt(Bulletin.NB_MAX_GRILLES + 1);
-            } while ( nbGrilles < Bulletin.NB_MIN_GRILLES );
+            nbGrilles = (byte) ( Bulletin.NB_MIN_GRILLES 
+                    + r.nextInt(Bulletin.NB_MAX_GRILLES - Bulletin.NB_MIN_GRILLES + 1) );
         }
         
         // Vérification du nombre de grilles à créer
         if ( nbGrilles <= Bulletin.NB_MAX_GRILLES && nbGrilles >= Bulletin.NB_MIN_GRILLES ) {
-            // Initialisation du tableau de grilles
-            this.grilles = new Grille[nbGrilles];
+            // Tableau des grilles alloué une fois, à la capacité maximale
+            if ( this.grilles == null ) {
+                this.grilles = new Grille[Bulletin.NB_MAX_GRILLES];
+            } else if ( this.grilles.length < Bulletin.NB_MAX_GRILLES ) {
+                this.grilles = Arrays.copyOf(this.grilles, Bulletin.NB_MAX_GRILLES);
+            }
+            this.nbGrilles = nbGrilles;
             this.totalMises = 0;
             byte i, n = Grille.NB_NUMEROS_MIN, nc = Grille.CHANCE_NB_NUMEROS_MIN;
             
-            // Création des nouveaux objets Grille
-            for ( i = 0; i < this.grilles.length; i++ ) {
+            // Tirage des grilles, en réutilisant les objets Grille existants
+            for ( i = 0; i < this.nbGrilles; i++ ) {
                 if ( aleatoire ) {
                     // Création d'une grille aléatoire
-                    n = Grille.getRandomNbNumeros();
-                    nc = Grille.getRandomNbNumerosChance(n);
+                    n = Grille.getRandomNbNumeros(r);
+                    nc = Grille.getRandomNbNumerosChance(n, r);
+                }
+                if ( this.grilles[i] == null ) {
+                    this.grilles[i] = new Grille( n, nc, r );
+                } else {
+                    this.grilles[i].recocher( n, nc, r );
                 }
-                this.grilles[i] = new Grille( n, nc );
                 if ( this.gagnante != null ) {
                     this.grilles[i].setGrilleGagnante(this.gagnante);
                 }
@@ -90,8 +163,26 @@ public class Bulletin {
         }
     }
     
+    /**
+     * Définit la grille gagnante du tirage et compare toutes les grilles du bulletin.
+     * @param gagnante La grille gagnante.
+     * @throws NullPointerException Si l'objet fourni est vide.
+     */
+    public void setGrilleGagnante ( Grille gagnante ) {
+        byte i;
+        
+        if ( gagnante != null ) {
+            this.gagnante = gagnante;
+            for ( i = 0; i < this.nbGrilles; i++ ) {
+                this.grilles[i].setGrilleGagnante(gagnante);
+            }
+        } else {
+            throw new NullPointerException("La grille gagnante fournie est nulle !");
+        }
+    }
+    
     /** Accesseur compteur (identifiant du bulletin) */
-    public int getId () {
+    public long getId () {
         return this.id;
     }
     
@@ -100,22 +191,36 @@ public class Bulletin {
      * @return Le nombre de grilles utilisées dans le bulletin.
      */
     public byte getNombreGrilles() {
-        return (byte) this.grilles.length;
+        return this.nbGrilles;
+    }
+    
+    /**
+     * Renvoie une grille du bulletin.
+     * @param i L'index de la grille (de 0 à getNombreGrilles() - 1).
+     * @return La grille.
+     * @throws IndexOutOfBoundsException Si l'index est hors limites.
+     */
+    public Grille getGrille( int i ) {
+        if ( i < 0 || i >= this.nbGrilles ) {
+            throw new IndexOutOfBoundsException("La grille demandée (" + i + ") "
+                    + "est hors limites (de 0 à " + (this.nbGrilles - 1) + ").");
+        }
+        return this.grilles[i];
     }
     
     /**
-     * Renvoie les grilles du bulletin sous forme de tableau d'objets.
+     * Renvoie les grilles du bulletin sous forme de tableau d'objets (copie du tableau interne).
      * @return Le tableau des grilles du bulletin.
      */
     public Grille[] getGrilles() {
-        return this.grilles;
+        return Arrays.copyOf(this.grilles, this.nbGrilles);
     }
     
     /**
      * Accesseur pour le total des mises des grilles du bulletin.
      * @return Le total des mises pour tout le bulletin.
      */
-    public short getTotalMises() {
+    public int getTotalMises() {
         return this.totalMises;
     }
     
@@ -125,30 +230,7 @@ public class Bulletin {
      */
     @Override
     public String toString () {
-        String retour = "======================= Grille n°" + this.getId() + " =======================\n";
-        byte i, nbNumerosGagnants, nbNumerosChanceGagnants, rang;
-        
-        for ( i = 0; i < this.grilles.length; i++ ) {
-            retour += "Grille n°" + (i+1) + ": " + this.grilles[i];
-            nbNumerosGagnants = this.grilles[i].getNbNumerosGagnants();
-            nbNumerosChanceGagnants = this.grilles[i].getNbNumerosChanceGagnants();
-            if ( nbNumerosGagnants > 0 ) {
-                retour += "-> " + nbNumerosGagnants + " n°";
-            }
-            if ( nbNumerosChanceGagnants > 0 ) {
-                if ( nbNumerosGagnants > 0 ) {
-                    retour += " & ";
-                }
-                retour += nbNumerosChanceGagnants + " n° chance";
-            }
-            rang = Grille.calculRangGagnant(nbNumerosGagnants, nbNumerosChanceGagnants);
-            if ( rang > 0 ) {
-                retour += " -> gain de rang " + rang;
-            }
-            retour += "\n";
-        }
-        retour += "-----------------------Total: " + this.totalMises + "E-------------------------\n\n";
-        return retour;
+        return BulletinRenderer.enChaine(this);
     }
 
 }
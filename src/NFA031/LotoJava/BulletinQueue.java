@@ -0,0 +1,194 @@
+package NFA031.LotoJava;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * File de dépôt des bulletins soumis par les joueurs: plusieurs threads
+ * producteurs, un seul thread consommateur, sans verrou.
+ * La file est un tableau circulaire de taille fixe (puissance de 2). Chaque case
+ * porte un numéro de séquence qui indique si elle est libre pour le producteur
+ * de ce tour, ou remplie pour le consommateur: un producteur réserve une case
+ * par une seule opération atomique (compareAndSet) sur la position d'écriture,
+ * puis la publie. Le consommateur vide la file par lots et verse chaque lot
+ * dans un DrawLedger en une fois.
+ * Un bulletin déposé appartient à la file: le producteur ne doit plus le modifier.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class BulletinQueue {
+
+    /** Nombre maximum de bulletins versés par lot. */
+    public final static int TAILLE_LOT = 1024;
+
+    // Cases de la file
+    private final Bulletin cases[];
+    // Numéro de séquence de chaque case: position + 1 si remplie, position si libre pour ce tour
+    private final AtomicLongArray sequences;
+    // Masque d'une position vers son index de case (capacité - 1)
+    private final int masque;
+    // Prochaine position d'écriture (producteurs)
+    private final AtomicLong ecriture = new AtomicLong();
+    // Prochaine position de lecture (consommateur seul)
+    private long lecture = 0L;
+
+    /**
+     * Constructeur.
+     * @param capacite Le nombre de bulletins en attente au maximum (arrondi à la puissance de 2 supérieure,
+     * au moins 2).
+     * @throws IllegalArgumentException Si la capacité est inférieure à 1 ou supérieure à 2^30.
+     */
+    public BulletinQueue ( int capacite ) {
+        int taille, i;
+
+        if ( capacite < 1 || capacite > 1 << 30 ) {
+            throw new IllegalArgumentException("La capacité demandée (" + capacite + ") "
+                    + "est hors limites (de 1 à " + (1 << 30) + ").");
+        }
+        // Au moins 2 cases: avec une seule, "remplie" et "libre au tour suivant" se confondraient
+        taille = Math.max(Integer.highestOneBit(capacite - 1) << 1, 2);
+        this.cases = new Bulletin[taille];
+        this.sequences = new AtomicLongArray(taille);
+        this.masque = taille - 1;
+        for ( i = 0; i < taille; i++ ) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Retourne le nombre de cases de la file.
+     * @return La capacité.
+     */
+    public int getCapacite() {
+        return this.cases.length;
+    }
+
+    /**
+     * Dépose un bulletin s'il reste de la place (producteurs).
+     * @param bulletin Le bulletin soumis.
+     * @return False si la file est pleine.
+     * @throws NullPointerException Si le bulletin est nul.
+     */
+    public boolean offrir ( Bulletin bulletin ) {
+        long position, ecart;
+        int index;
+
+        if ( bulletin == null ) {
+            throw new NullPointerException("Le bulletin fourni est nul !");
+        }
+        while ( true ) {
+            position = this.ecriture.get();
+            index = (int) position & this.masque;
+            ecart = this.sequences.get(index) - position;
+            if ( ecart == 0 ) {
+                // Case libre pour ce tour: réservation
+                if ( this.ecriture.compareAndSet(position, position + 1) ) {
+                    this.cases[index] = bulletin;
+                    this.sequences.lazySet(index, position + 1);   // Publication
+                    return true;
+                }
+            } else if ( ecart < 0 ) {
+                return false;   // Case pas encore vidée depuis le tour précédent: file pleine
+            }
+            // Sinon, position déjà prise par un autre producteur: nouvel essai
+        }
+    }
+
+    /**
+     * Dépose un bulletin, en attendant qu'une case se libère si la file est pleine (producteurs).
+     * @param bulletin Le bulletin soumis.
+     * @throws NullPointerException Si le bulletin est nul.
+     * @throws InterruptedException Si le thread est interrompu pendant l'attente.
+     */
+    public void soumettre ( Bulletin bulletin ) throws InterruptedException {
+        while ( !this.offrir(bulletin) ) {
+            if ( Thread.interrupted() ) {
+                throw new InterruptedException();
+            }
+            LockSupport.parkNanos(1000L);
+        }
+    }
+
+    /**
+     * Indique si la file est vide (consommateur).
+     * @return True si aucun bulletin publié n'attend d'être retiré.
+     */
+    public boolean estVide () {
+        return this.sequences.get((int) this.lecture & this.masque) != this.lecture + 1;
+    }
+
+    /**
+     * Retire des bulletins de la file, dans leur ordre de dépôt (consommateur).
+     * @param sortie La destination des bulletins retirés.
+     * @param max Le nombre maximum de bulletins à retirer.
+     * @return Le nombre de bulletins retirés.
+     */
+    public int vider ( Consumer<Bulletin> sortie, int max ) {
+        Bulletin bulletin;
+        int index, nb = 0;
+
+        while ( nb < max ) {
+            if ( this.estVide() ) {
+                break;  // Case suivante pas encore publiée
+            }
+            index = (int) this.lecture & this.masque;
+            bulletin = this.cases[index];
+            this.cases[index] = null;
+            this.sequences.lazySet(index, this.lecture + this.cases.length);  // Libre pour le tour suivant
+            this.lecture++;
+            sortie.accept(bulletin);
+            nb++;
+        }
+        return nb;
+    }
+
+    /**
+     * Retire un lot de bulletins et le verse dans une comptabilité de tirage
+     * (consommateur). Le lot est compté localement, puis ajouté en une fois.
+     * @param registre La comptabilité du tirage.
+     * @return Le nombre de bulletins versés.
+     */
+    public int verser ( DrawLedger registre ) {
+        DrawTotals lot;
+        Grille gagnante;
+        int nb;
+
+        if ( this.estVide() ) {
+            return 0;
+        }
+        lot = new DrawTotals();
+        gagnante = registre.getGagnante();
+        nb = this.vider(bulletin -> {
+            byte b;
+            for ( b = 0; b < bulletin.getNombreGrilles(); b++ ) {
+                lot.ajouterGrille(bulletin.getGrille(b).getMasqueNumeros(),
+                        bulletin.getGrille(b).getMasqueNumerosChance(), gagnante);
+            }
+            lot.ajouterNbBulletins(1L);
+        }, TAILLE_LOT);
+
+        if ( nb > 0 ) {
+            registre.ajouter(lot);
+        }
+        return nb;
+    }
+
+    /**
+     * Boucle du consommateur: verse les bulletins déposés dans une comptabilité de
+     * tirage jusqu'à l'interruption du thread, puis verse les derniers bulletins en attente
+     * (le consommateur est à interrompre une fois tous les producteurs arrêtés).
+     * @param registre La comptabilité du tirage.
+     */
+    public void consommer ( DrawLedger registre ) {
+        while ( !Thread.currentThread().isInterrupted() ) {
+            if ( this.verser(registre) == 0 ) {
+                LockSupport.parkNanos(10000L);
+            }
+        }
+        while ( this.verser(registre) > 0 ) {
+            // Fin: vidage de la file
+        }
+    }
+
+}
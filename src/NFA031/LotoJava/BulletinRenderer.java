@@ -0,0 +1,219 @@
+package NFA031.LotoJava;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.function.Consumer;
+
+/**
+ * Mise en forme tabulée des bulletins et des grilles (mode verbeux).
+ * Le texte est écrit directement dans un tampon de caractères réutilisé,
+ * vidé vers la sortie quand il est plein: aucune chaîne intermédiaire n'est
+ * créée, et les numéros sont lus dans l'ordre croissant depuis les masques.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class BulletinRenderer implements Consumer<Bulletin>, Flushable {
+
+    /** Taille par défaut du tampon, en caractères. */
+    public final static int TAILLE_TAMPON = 1 << 16;
+
+    // Place maximale occupée par une grille (numéros, numéros chance, mise et résultat)
+    private final static int TAILLE_MAX_GRILLE = 256;
+
+    // Destination du texte
+    private final Writer sortie;
+    // Tampon de caractères réutilisé
+    private final char tampon[];
+    // Position d'écriture dans le tampon
+    private int position = 0;
+
+    /**
+     * Constructeur: tampon de taille par défaut.
+     * @param sortie La destination du texte.
+     */
+    public BulletinRenderer ( Writer sortie ) {
+        this( sortie, TAILLE_TAMPON );
+    }
+
+    /**
+     * Constructeur.
+     * @param sortie La destination du texte.
+     * @param tailleTampon La taille du tampon, en caractères.
+     * @throws NullPointerException Si la sortie fournie est nulle.
+     * @throws IllegalArgumentException Si le tampon est trop petit pour une grille.
+     */
+    public BulletinRenderer ( Writer sortie, int tailleTampon ) {
+        if ( sortie == null ) {
+            throw new NullPointerException("La sortie fournie est nulle !");
+        }
+        if ( tailleTampon < TAILLE_MAX_GRILLE ) {
+            throw new IllegalArgumentException("La taille du tampon (" + tailleTampon + ") "
+                    + "est inférieure au minimum (" + TAILLE_MAX_GRILLE + ").");
+        }
+        this.sortie = sortie;
+        this.tampon = new char[tailleTampon];
+    }
+
+    /**
+     * Retourne le texte d'un bulletin (utilisé par Bulletin.toString()).
+     * @param bulletin Le bulletin à mettre en forme.
+     * @return Le texte du bulletin.
+     */
+    public static String enChaine ( Bulletin bulletin ) {
+        StringWriter texte = new StringWriter();
+        BulletinRenderer rendu = new BulletinRenderer(texte, TAILLE_MAX_GRILLE * Bulletin.NB_MAX_GRILLES);
+        rendu.ecrireBulletin(bulletin);
+        rendu.flush();
+        return texte.toString();
+    }
+
+    /**
+     * Retourne le texte d'une grille (utilisé par Grille.toString()).
+     * @param grille La grille à mettre en forme.
+     * @return Le texte de la grille.
+     */
+    public static String enChaine ( Grille grille ) {
+        StringWriter texte = new StringWriter();
+        BulletinRenderer rendu = new BulletinRenderer(texte, TAILLE_MAX_GRILLE);
+        rendu.ecrireGrille(grille);
+        rendu.flush();
+        return texte.toString();
+    }
+
+    /** Écrit un bulletin: permet de brancher le rendu en sortie du moteur de tirage. */
+    @Override
+    public void accept ( Bulletin bulletin ) {
+        this.ecrireBulletin(bulletin);
+    }
+
+    /**
+     * Écrit un bulletin, ses grilles, leurs résultats et le total des mises.
+     * @param bulletin Le bulletin à écrire.
+     */
+    public void ecrireBulletin ( Bulletin bulletin ) {
+        Grille grille;
+        byte i, nbNumerosGagnants, nbNumerosChanceGagnants, rang;
+
+        this.reserver(TAILLE_MAX_GRILLE);
+        this.ecrire("======================= Grille n°");
+        this.ecrire(bulletin.getId());
+        this.ecrire(" =======================\n");
+        for ( i = 0; i < bulletin.getNombreGrilles(); i++ ) {
+            grille = bulletin.getGrille(i);
+            this.reserver(TAILLE_MAX_GRILLE);
+            this.ecrire("Grille n°");
+            this.ecrire(i + 1);
+            this.ecrire(": ");
+            this.ecrireGrille(grille);
+            nbNumerosGagnants = grille.getNbNumerosGagnants();
+            nbNumerosChanceGagnants = grille.getNbNumerosChanceGagnants();
+            if ( nbNumerosGagnants > 0 ) {
+                this.ecrire("-> ");
+                this.ecrire(nbNumerosGagnants);
+                this.ecrire(" n°");
+            }
+            if ( nbNumerosChanceGagnants > 0 ) {
+                if ( nbNumerosGagnants > 0 ) {
+                    this.ecrire(" & ");
+                }
+                this.ecrire(nbNumerosChanceGagnants);
+                this.ecrire(" n° chance");
+            }
+            rang = grille.getRang();
+            if ( rang > 0 ) {
+                this.ecrire(" -> gain de rang ");
+                this.ecrire(rang);
+            }
+            this.tampon[this.position++] = '\n';
+        }
+        this.reserver(TAILLE_MAX_GRILLE);
+        this.ecrire("-----------------------Total: ");
+        this.ecrire(bulletin.getTotalMises());
+        this.ecrire("E-------------------------\n\n");
+    }
+
+    /**
+     * Écrit les numéros, numéros chance et la mise d'une grille, séparés par des tabulations.
+     * @param grille La grille à écrire.
+     */
+    public void ecrireGrille ( Grille grille ) {
+        this.reserver(TAILLE_MAX_GRILLE);
+        this.tampon[this.position++] = '\t';
+        this.ecrireNumeros(grille.getMasqueNumeros());
+        this.ecrire(" ||\t");
+        this.ecrireNumeros(grille.getMasqueNumerosChance() & 0xFFFFL);
+        this.ecrire("\t(");
+        this.ecrire(grille.getMise());
+        this.ecrire(" €)\t");
+    }
+
+    /** Écrit les numéros d'un masque par ordre croissant, séparés par des tabulations. */
+    private void ecrireNumeros ( long masque ) {
+        while ( masque != 0 ) {
+            this.ecrire(Long.numberOfTrailingZeros(masque));
+            masque &= masque - 1; // Efface le bit le plus faible
+            if ( masque != 0 ) { // Si on n'est pas à la fin, tabulation
+                this.tampon[this.position++] = '\t';
+            }
+        }
+    }
+
+    /** Copie une chaîne constante dans le tampon. */
+    private void ecrire ( String texte ) {
+        texte.getChars(0, texte.length(), this.tampon, this.position);
+        this.position += texte.length();
+    }
+
+    /** Écrit un entier positif ou nul en décimal, chiffre par chiffre. */
+    private void ecrire ( long nombre ) {
+        int fin, debut;
+        char c;
+
+        if ( nombre < 0 ) {
+            this.tampon[this.position++] = '-';
+            nombre = -nombre;
+        }
+        debut = this.position;
+        do {
+            this.tampon[this.position++] = (char) ('0' + nombre % 10);
+            nombre /= 10;
+        } while ( nombre > 0 );
+        // Les chiffres ont été écrits à l'envers: on les remet dans l'ordre
+        for ( fin = this.position - 1; debut < fin; debut++, fin-- ) {
+            c = this.tampon[debut];
+            this.tampon[debut] = this.tampon[fin];
+            this.tampon[fin] = c;
+        }
+    }
+
+    /** Vide le tampon si la place restante est insuffisante. */
+    private void reserver ( int taille ) {
+        if ( this.position + taille > this.tampon.length ) {
+            this.viderTampon();
+        }
+    }
+
+    /** Écrit le contenu du tampon dans la sortie. */
+    private void viderTampon () {
+        try {
+            this.sortie.write(this.tampon, 0, this.position);
+        } catch ( IOException e ) {
+            throw new UncheckedIOException("Écriture des bulletins impossible.", e);
+        }
+        this.position = 0;
+    }
+
+    /** Vide le tampon puis la sortie. */
+    @Override
+    public void flush () {
+        this.viderTampon();
+        try {
+            this.sortie.flush();
+        } catch ( IOException e ) {
+            throw new UncheckedIOException("Écriture des bulletins impossible.", e);
+        }
+    }
+
+}
@@ -0,0 +1,267 @@
+package NFA031.LotoJava;
+
+import java.util.Arrays;
+
+/**
+ * Stockage compact des bulletins d'un tirage.
+ * Toutes les grilles sont rangées dans des tableaux de primitifs contigus
+ * (masques des numéros, masques des numéros chance, début de chaque bulletin):
+ * aucun objet Bulletin ou Grille n'est conservé, ils sont recréés à la demande.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class BulletinStore {
+
+    // Calcul des rangs par lots (vectoriel si disponible)
+    private final static GridScorer CALCUL_RANGS = GridScorer.creer();
+    // Taille maximum d'un tableau (marge laissée aux en-têtes des tableaux par certaines JVM)
+    private final static int TAILLE_MAX = Integer.MAX_VALUE - 8;
+
+    // Masques des numéros cochés, une case par grille.
+    private long masquesNumeros[];
+    // Masques des numéros chance cochés, une case par grille.
+    private short masquesNumerosChance[];
+    // Index de la première grille de chaque bulletin (la case nbBulletins marque la fin du dernier).
+    private int debutsBulletins[];
+    // Identifiants des bulletins.
+    private long identifiants[];
+    // Nombre de bulletins stockés.
+    private int nbBulletins = 0;
+    // Nombre de grilles stockées.
+    private int nbGrilles = 0;
+
+    /**
+     * Constructeur: stockage prévu pour un nombre de bulletins donné.
+     * @param capaciteBulletins Le nombre de bulletins attendus.
+     * @throws IllegalArgumentException Si la capacité est négative ou dépasse la taille maximum d'un tableau.
+     */
+    public BulletinStore ( int capaciteBulletins ) {
+        if ( capaciteBulletins >= TAILLE_MAX ) {
+            throw new IllegalArgumentException("La capacité demandée (" + capaciteBulletins + ") "
+                    + "est supérieure au maximum (" + (TAILLE_MAX - 1) + ").");
+        }
+        if ( capaciteBulletins >= 0 ) {
+            // Réservation pour une moyenne de grilles par bulletin, agrandie si besoin
+            int capaciteGrilles = (int) Math.min( TAILLE_MAX,
+                    (long) capaciteBulletins * (Bulletin.NB_MIN_GRILLES + Bulletin.NB_MAX_GRILLES) / 2 + 1 );
+            this.masquesNumeros = new long[capaciteGrilles];
+            this.masquesNumerosChance = new short[capaciteGrilles];
+            this.debutsBulletins = new int[capaciteBulletins + 1];
+            this.identifiants = new long[capaciteBulletins];
+        } else {
+            throw new IllegalArgumentException("La capacité demandée (" + capaciteBulletins + ") est négative.");
+        }
+    }
+
+    /**
+     * Ajoute les grilles d'un bulletin au stockage.
+     * L'objet Bulletin peut ensuite être abandonné.
+     * @param bulletin Le bulletin à stocker.
+     * @throws NullPointerException Si le bulletin fourni est nul.
+     * @throws IllegalStateException Si le stockage est plein.
+     */
+    public void ajouter ( Bulletin bulletin ) {
+        if ( bulletin != null ) {
+            byte i, nb = bulletin.getNombreGrilles();
+
+            this.reserver(nb);
+            for ( i = 0; i < nb; i++ ) {
+                this.masquesNumeros[this.nbGrilles] = bulletin.getGrille(i).getMasqueNumeros();
+                this.masquesNumerosChance[this.nbGrilles] = bulletin.getGrille(i).getMasqueNumerosChance();
+                this.nbGrilles++;
+            }
+            this.identifiants[this.nbBulletins] = bulletin.getId();
+            this.nbBulletins++;
+            this.debutsBulletins[this.nbBulletins] = this.nbGrilles;
+        } else {
+            throw new NullPointerException("Le bulletin fourni est nul !");
+        }
+    }
+
+    /**
+     * Agrandit les tableaux si nécessaire pour un bulletin de plus.
+     * @param nbGrillesBulletin Le nombre de grilles du bulletin à ajouter.
+     * @throws IllegalStateException Si les tableaux ont atteint leur taille maximum.
+     */
+    private void reserver ( int nbGrillesBulletin ) {
+        int capacite;
+
+        if ( this.nbBulletins == this.identifiants.length ) {
+            // La case de fin du dernier bulletin (debutsBulletins) compte dans la taille maximum
+            capacite = BulletinStore.agrandir(this.identifiants.length, this.nbBulletins + 1L, TAILLE_MAX - 1,
+                    "bulletins");
+            this.identifiants = Arrays.copyOf(this.identifiants, capacite);
+            this.debutsBulletins = Arrays.copyOf(this.debutsBulletins, capacite + 1);
+        }
+        if ( this.nbGrilles + nbGrillesBulletin > this.masquesNumeros.length ) {
+            capacite = BulletinStore.agrandir(this.masquesNumeros.length, (long) this.nbGrilles + nbGrillesBulletin,
+                    TAILLE_MAX, "grilles");
+            this.masquesNumeros = Arrays.copyOf(this.masquesNumeros, capacite);
+            this.masquesNumerosChance = Arrays.copyOf(this.masquesNumerosChance, capacite);
+        }
+    }
+
+    /**
+     * Calcule la nouvelle taille d'un tableau (une fois et demie la taille actuelle,
+     * au moins la taille demandée), en long pour ne pas dépasser la capacité d'un int.
+     * @param taille La taille actuelle.
+     * @param minimum La taille nécessaire.
+     * @param max La taille maximum.
+     * @param contenu Le contenu du tableau, pour le message d'erreur.
+     * @return La nouvelle taille.
+     * @throws IllegalStateException Si la taille nécessaire dépasse la taille maximum.
+     */
+    private static int agrandir ( int taille, long minimum, int max, String contenu ) {
+        if ( minimum > max ) {
+            throw new IllegalStateException("Le stockage ne peut pas contenir plus de " + max + " " + contenu + ".");
+        }
+        return (int) Math.min(max, Math.max(minimum, (long) taille + (taille >> 1) + 1));
+    }
+
+    /**
+     * Retourne le nombre de bulletins stockés.
+     * @return Le nombre de bulletins.
+     */
+    public int getNbBulletins() {
+        return this.nbBulletins;
+    }
+
+    /**
+     * Retourne le nombre total de grilles stockées.
+     * @return Le nombre de grilles, tous bulletins confondus.
+     */
+    public int getNbGrilles() {
+        return this.nbGrilles;
+    }
+
+    /**
+     * Retourne le nombre de grilles d'un bulletin.
+     * @param bulletin L'index du bulletin dans le stockage.
+     * @return Le nombre de grilles du bulletin.
+     */
+    public int getNbGrilles( int bulletin ) {
+        this.verifierBulletin(bulletin);
+        return this.debutsBulletins[bulletin + 1] - this.debutsBulletins[bulletin];
+    }
+
+    /**
+     * Retourne l'index de la première grille d'un bulletin.
+     * @param bulletin L'index du bulletin dans le stockage.
+     * @return L'index de sa première grille.
+     */
+    public int getPremiereGrille( int bulletin ) {
+        this.verifierBulletin(bulletin);
+        return this.debutsBulletins[bulletin];
+    }
+
+    /**
+     * Retourne l'identifiant d'un bulletin.
+     * @param bulletin L'index du bulletin dans le stockage.
+     * @return L'identifiant du bulletin.
+     */
+    public long getIdBulletin( int bulletin ) {
+        this.verifierBulletin(bulletin);
+        return this.identifiants[bulletin];
+    }
+
+    /**
+     * Retourne le masque des numéros cochés d'une grille.
+     * @param grille L'index de la grille dans le stockage.
+     * @return Le masque des numéros cochés.
+     */
+    public long getMasqueNumeros( int grille ) {
+        this.verifierGrille(grille);
+        return this.masquesNumeros[grille];
+    }
+
+    /**
+     * Retourne le masque des numéros chance cochés d'une grille.
+     * @param grille L'index de la grille dans le stockage.
+     * @return Le masque des numéros chance cochés.
+     */
+    public short getMasqueNumerosChance( int grille ) {
+        this.verifierGrille(grille);
+        return this.masquesNumerosChance[grille];
+    }
+
+    /**
+     * Calcule le rang de gain d'une grille sans créer d'objet.
+     * @param grille L'index de la grille dans le stockage.
+     * @param gagnante La grille gagnante du tirage.
+     * @return Le numéro du rang de gain de la grille (0 si perdante).
+     */
+    public byte getRang( int grille, Grille gagnante ) {
+        this.verifierGrille(grille);
+        return Grille.calculRangGagnant(
+                (byte) Long.bitCount(this.masquesNumeros[grille] & gagnante.getMasqueNumeros()),
+                (byte) Integer.bitCount((this.masquesNumerosChance[grille] & gagnante.getMasqueNumerosChance()) & 0xFFFF));
+    }
+
+    /**
+     * Calcule le rang de gain de toutes les grilles stockées, par lots, sans créer d'objet.
+     * @param gagnante La grille gagnante du tirage.
+     * @param rangs Le tableau à remplir (au moins getNbGrilles() cases), même index que les grilles.
+     * @throws IndexOutOfBoundsException Si le tableau est trop petit.
+     */
+    public void calculerRangs ( Grille gagnante, byte rangs[] ) {
+        if ( rangs.length < this.nbGrilles ) {
+            throw new IndexOutOfBoundsException("Le tableau des rangs (" + rangs.length + " cases) "
+                    + "est plus petit que le nombre de grilles (" + this.nbGrilles + ").");
+        }
+        CALCUL_RANGS.scorer(this.masquesNumeros, this.masquesNumerosChance, 0, this.nbGrilles, gagnante, rangs);
+    }
+
+    /**
+     * Crée une vue objet d'une grille stockée.
+     * @param grille L'index de la grille dans le stockage.
+     * @param gagnante La grille gagnante du tirage (peut être nulle).
+     * @return La grille reconstruite.
+     */
+    public Grille getGrille( int grille, Grille gagnante ) {
+        this.verifierGrille(grille);
+        Grille vue = new Grille(this.masquesNumeros[grille], this.masquesNumerosChance[grille]);
+        if ( gagnante != null ) {
+            vue.setGrilleGagnante(gagnante);
+        }
+        return vue;
+    }
+
+    /**
+     * Crée une vue objet d'un bulletin stocké.
+     * @param bulletin L'index du bulletin dans le stockage.
+     * @param gagnante La grille gagnante du tirage (peut être nulle).
+     * @return Le bulletin reconstruit.
+     */
+    public Bulletin getBulletin( int bulletin, Grille gagnante ) {
+        int debut = this.getPremiereGrille(bulletin);
+        Grille grilles[] = new Grille[this.debutsBulletins[bulletin + 1] - debut];
+        int i;
+
+        for ( i = 0; i < grilles.length; i++ ) {
+            grilles[i] = new Grille(this.masquesNumeros[debut + i], this.masquesNumerosChance[debut + i]);
+        }
+        return new Bulletin(this.identifiants[bulletin], grilles, gagnante);
+    }
+
+    /**
+     * Vérifie qu'un index de bulletin est valide.
+     * @throws IndexOutOfBoundsException Si l'index est hors limites.
+     */
+    private void verifierBulletin ( int bulletin ) {
+        if ( bulletin < 0 || bulletin >= this.nbBulletins ) {
+            throw new IndexOutOfBoundsException("Le bulletin demandé (" + bulletin + ") "
+                    + "est hors limites (de 0 à " + (this.nbBulletins - 1) + ").");
+        }
+    }
+
+    /**
+     * Vérifie qu'un index de grille est valide.
+     * @throws IndexOutOfBoundsException Si l'index est hors limites.
+     */
+    private void verifierGrille ( int grille ) {
+        if ( grille < 0 || grille >= this.nbGrilles ) {
+            throw new IndexOutOfBoundsException("La grille demandée (" + grille + ") "
+                    + "est hors limites (de 0 à " + (this.nbGrilles - 1) + ").");
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package NFA031.LotoJava;
+
+import java.math.BigInteger;
+
+/**
+ * Calculs de combinaisons C(n, k).
+ * Les valeurs utiles au jeu sont précalculées dans un triangle de Pascal;
+ * au-delà, le calcul détecte les dépassements de capacité.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public final class Combinatoire {
+
+    /** Plus grand n du triangle précalculé (C(63, k) tient dans un long). */
+    public final static int N_MAX_TABLE = 63;
+
+    // Triangle de Pascal: PASCAL[n][k] = C(n, k)
+    private final static long PASCAL[][] = new long[N_MAX_TABLE + 1][];
+
+    static {
+        int n, k;
+        for ( n = 0; n <= N_MAX_TABLE; n++ ) {
+            PASCAL[n] = new long[n + 1];
+            PASCAL[n][0] = 1L;
+            PASCAL[n][n] = 1L;
+            for ( k = 1; k < n; k++ ) {
+                PASCAL[n][k] = PASCAL[n-1][k-1] + PASCAL[n-1][k];
+            }
+        }
+    }
+
+    // Classe utilitaire: pas d'instance
+    private Combinatoire () {
+    }
+
+    /**
+     * Retourne le nombre de combinaisons de k éléments parmi n.
+     * @param n Total de nombres à disposition.
+     * @param k Nombre de nombres à choisir.
+     * @return C(n, k), 0 si k est hors de [0, n].
+     * @throws IllegalArgumentException Si n est négatif.
+     * @throws ArithmeticException Si le résultat dépasse la capacité d'un long.
+     */
+    public static long combinaisons ( int n, int k ) {
+        long resultat;
+
+        if ( n < 0 ) {
+            throw new IllegalArgumentException("Le nombre d'éléments (" + n + ") est négatif.");
+        }
+        if ( k < 0 || k > n ) {
+            resultat = 0L;
+        } else if ( n <= N_MAX_TABLE ) {
+            resultat = PASCAL[n][k];
+        } else {
+            int i, d;
+            long g;
+
+            k = Math.min(k, n - k);
+            resultat = 1L;
+            /* C(n, i+1) = C(n, i) * (n-i) / (i+1):
+             * on divise d'abord par le pgcd de C(n, i) et (i+1), le reste de (i+1)
+             * divise alors forcément (n-i), ce qui évite tout dépassement intermédiaire. */
+            for ( i = 0; i < k; i++ ) {
+                g = pgcd(resultat, i + 1);
+                d = (int) ((i + 1) / g);
+                resultat = Math.multiplyExact(resultat / g, (long) ((n - i) / d));
+            }
+        }
+        return resultat;
+    }
+
+    /**
+     * Retourne le nombre exact de combinaisons de k éléments parmi n, sans limite de taille.
+     * @param n Total de nombres à disposition.
+     * @param k Nombre de nombres à choisir.
+     * @return C(n, k), 0 si k est hors de [0, n].
+     * @throws IllegalArgumentException Si n est négatif.
+     */
+    public static BigInteger combinaisonsExactes ( int n, int k ) {
+        BigInteger resultat;
+
+        if ( n < 0 ) {
+            throw new IllegalArgumentException("Le nombre d'éléments (" + n + ") est négatif.");
+        }
+        if ( k < 0 || k > n ) {
+            resultat = BigInteger.ZERO;
+        } else if ( n <= N_MAX_TABLE ) {
+            resultat = BigInteger.valueOf(PASCAL[n][k]);
+        } else {
+            int i;
+
+            k = Math.min(k, n - k);
+            resultat = BigInteger.ONE;
+            for ( i = 0; i < k; i++ ) {
+                resultat = resultat.multiply(BigInteger.valueOf(n - i)).divide(BigInteger.valueOf(i + 1));
+            }
+        }
+        return resultat;
+    }
+
+    /** Plus grand commun diviseur (algorithme d'Euclide). */
+    private static long pgcd ( long a, long b ) {
+        long t;
+        while ( b != 0 ) {
+            t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+}
@@ -0,0 +1,166 @@
+package NFA031.LotoJava;
+
+/**
+ * Date d'un tirage, compactée dans un entier aaaammjj (par exemple 20130101).
+ * Cette valeur est la clé des tirages dans les archives (voir ArchiveFormat):
+ * les dates compactées se comparent et se trient comme des entiers.
+ * La lecture d'une date saisie ("dd-mm-yyyy" ou "dd-mm-yy") se fait caractère
+ * par caractère, sans créer d'objet ni utiliser d'exception: lire() rend
+ * directement la valeur compactée, ou INVALIDE.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public final class DateTirage implements Comparable<DateTirage> {
+
+    /** Valeur rendue par lire() pour une date non valide. */
+    public final static int INVALIDE = -1;
+
+    // Nombre de jours de chaque mois, pour une année non bissextile
+    private final static byte JOURS_PAR_MOIS[] = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+
+    // Date compactée (aaaammjj)
+    private final int valeur;
+
+    // Instances créées par depuis()
+    private DateTirage ( int valeur ) {
+        this.valeur = valeur;
+    }
+
+    /**
+     * Lit une date saisie sous le format "dd-mm-yyyy" ou "dd-mm-yy"
+     * (années sur deux chiffres: de 1970 à 2069).
+     * @param date La date saisie.
+     * @return La date compactée (aaaammjj), ou INVALIDE si la date n'est pas valide.
+     */
+    public static int lire ( CharSequence date ) {
+        int longueur = date.length(), jour, mois, annee;
+
+        if ( (longueur != 8 && longueur != 10) || date.charAt(2) != '-' || date.charAt(5) != '-' ) {
+            return INVALIDE;
+        }
+        jour = nombre(date, 0, 2);
+        mois = nombre(date, 3, 5);
+        annee = nombre(date, 6, longueur);
+        if ( jour < 0 || mois < 0 || annee < 0 ) {
+            return INVALIDE;
+        }
+        if ( annee < 100 ) {    // Année sur deux chiffres: calendrier à partir de 1970
+            annee += annee >= 70 ? 1900 : 2000;
+        }
+        return compacter(annee, mois, jour);
+    }
+
+    /**
+     * Lit les chiffres décimaux d'une partie de chaîne.
+     * @return Le nombre lu, ou -1 si un caractère n'est pas un chiffre.
+     */
+    private static int nombre ( CharSequence texte, int debut, int fin ) {
+        int n = 0, i;
+        char c;
+
+        for ( i = debut; i < fin; i++ ) {
+            c = texte.charAt(i);
+            if ( c < '0' || c > '9' ) {
+                return -1;
+            }
+            n = n * 10 + (c - '0');
+        }
+        return n;
+    }
+
+    /**
+     * Compacte une date.
+     * @param annee L'année (de 0 à 9999).
+     * @param mois Le mois (de 1 à 12).
+     * @param jour Le jour du mois.
+     * @return La date compactée (aaaammjj), ou INVALIDE si la date n'existe pas.
+     */
+    public static int compacter ( int annee, int mois, int jour ) {
+        int jours;
+
+        if ( annee < 0 || annee > 9999 || mois < 1 || mois > 12 ) {
+            return INVALIDE;
+        }
+        jours = JOURS_PAR_MOIS[mois - 1];
+        if ( mois == 2 && Loto.isBissextile((short) annee) ) {  // Février d'une année bissextile
+            jours++;
+        }
+        if ( jour < 1 || jour > jours ) {
+            return INVALIDE;
+        }
+        return annee * 10000 + mois * 100 + jour;
+    }
+
+    /**
+     * Retourne la date d'un tirage à partir d'une date saisie.
+     * @param date La date saisie ("dd-mm-yyyy" ou "dd-mm-yy").
+     * @return La date du tirage.
+     * @throws IllegalArgumentException Si la date n'est pas valide.
+     */
+    public static DateTirage depuis ( CharSequence date ) {
+        int valeur = lire(date);
+
+        if ( valeur == INVALIDE ) {
+            throw new IllegalArgumentException("La date fournie (" + date + ") n'est pas valide.");
+        }
+        return new DateTirage(valeur);
+    }
+
+    /**
+     * Retourne la date d'un tirage à partir de sa valeur compactée.
+     * @param valeur La date compactée (aaaammjj).
+     * @return La date du tirage.
+     * @throws IllegalArgumentException Si la valeur n'est pas une date valide.
+     */
+    public static DateTirage depuis ( int valeur ) {
+        if ( valeur < 0 || compacter(valeur / 10000, valeur / 100 % 100, valeur % 100) != valeur ) {
+            throw new IllegalArgumentException("La valeur fournie (" + valeur + ") n'est pas une date valide.");
+        }
+        return new DateTirage(valeur);
+    }
+
+    /**
+     * Retourne la date compactée.
+     * @return La date (aaaammjj).
+     */
+    public int getValeur() {
+        return this.valeur;
+    }
+
+    /** @return L'année. */
+    public int getAnnee() {
+        return this.valeur / 10000;
+    }
+
+    /** @return Le mois (de 1 à 12). */
+    public int getMois() {
+        return this.valeur / 100 % 100;
+    }
+
+    /** @return Le jour du mois. */
+    public int getJour() {
+        return this.valeur % 100;
+    }
+
+    /** Ordre chronologique. */
+    @Override
+    public int compareTo ( DateTirage autre ) {
+        return Integer.compare(this.valeur, autre.valeur);
+    }
+
+    @Override
+    public boolean equals ( Object autre ) {
+        return autre instanceof DateTirage && ((DateTirage) autre).valeur == this.valeur;
+    }
+
+    @Override
+    public int hashCode () {
+        return this.valeur;
+    }
+
+    /** Date au format "dd-mm-yyyy". */
+    @Override
+    public String toString () {
+        return String.format("%02d-%02d-%04d", this.getJour(), this.getMois(), this.getAnnee());
+    }
+
+}
@@ -0,0 +1,288 @@
+package NFA031.LotoJava;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+/**
+ * Moteur de tirage: génère et compte les bulletins en parallèle (fork/join).
+ * Les bulletins sont découpés en blocs de taille fixe. Chaque découpage d'une
+ * tâche en deux sépare aussi sa source aléatoire (split), si bien que chaque
+ * tâche possède sa propre source, et que l'arbre des sources ne dépend que de
+ * la graine: les totaux sont identiques en parallèle et en séquentiel.
+ * Les bulletins ne sont jamais conservés: chacun est généré, compté,
+ * éventuellement transmis à une sortie, puis abandonné (mémoire constante).
+ * Chaque bloc réutilise un seul objet Bulletin (et ses grilles), régénéré pour
+ * chaque bulletin: la génération n'alloue presque plus rien.
+ * Un tirage en cours peut être annulé (voir setAnnulation()): la demande est
+ * vue au début de chaque bloc.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class DrawEngine {
+
+    /** Nombre de bulletins par bloc (unité de travail d'une tâche). */
+    public final static int TAILLE_BLOC = 4096;
+
+    // Graine dont dérivent les sources aléatoires des tâches
+    private final long graine;
+    // Fabrique de la source aléatoire racine à partir de la graine
+    private final LongFunction<RandomSource> fabrique;
+    // Pool d'exécution des tâches
+    private final ForkJoinPool pool;
+    // Métriques d'exécution (null si non mesurées)
+    private DrawMetrics metriques = null;
+    // Demande d'annulation du tirage (null si non annulable)
+    private BooleanSupplier annulation = null;
+
+    /**
+     * Constructeur: moteur utilisant le pool commun.
+     * @param graine La graine du tirage.
+     */
+    public DrawEngine ( long graine ) {
+        this( graine, SplittableRandomSource::new, ForkJoinPool.commonPool() );
+    }
+
+    /**
+     * Constructeur.
+     * @param graine La graine du tirage.
+     * @param fabrique La fabrique de la source aléatoire racine à partir de la graine.
+     * @param pool Le pool d'exécution des tâches.
+     * @throws NullPointerException Si la fabrique ou le pool fourni est nul.
+     */
+    public DrawEngine ( long graine, LongFunction<RandomSource> fabrique, ForkJoinPool pool ) {
+        if ( fabrique != null && pool != null ) {
+            this.graine = graine;
+            this.fabrique = fabrique;
+            this.pool = pool;
+        } else {
+            throw new NullPointerException("La fabrique ou le pool d'exécution fourni est nul !");
+        }
+    }
+
+    /**
+     * Retourne la graine du moteur.
+     * @return La graine du tirage.
+     */
+    public long getGraine() {
+        return this.graine;
+    }
+
+    /**
+     * Active (ou désactive avec null) la mesure des métriques d'exécution.
+     * @param metriques Les métriques à alimenter.
+     */
+    public void setMetriques ( DrawMetrics metriques ) {
+        this.metriques = metriques;
+    }
+
+    /**
+     * Retourne les métriques alimentées par le moteur.
+     * @return Les métriques, ou null si elles ne sont pas mesurées.
+     */
+    public DrawMetrics getMetriques() {
+        return this.metriques;
+    }
+
+    /**
+     * Rend les tirages annulables: la condition est consultée avant chaque bloc,
+     * et le tirage s'arrête (CancellationException) dès qu'elle est vraie.
+     * @param annulation La condition d'annulation (null pour un tirage non annulable).
+     */
+    public void setAnnulation ( BooleanSupplier annulation ) {
+        this.annulation = annulation;
+    }
+
+    /**
+     * Génère et compte des bulletins sur tous les cœurs disponibles.
+     * @param premierId L'identifiant du premier bulletin.
+     * @param nbBulletins Le nombre de bulletins à générer.
+     * @param gagnante La grille gagnante du tirage.
+     * @return Les totaux du tirage.
+     * @throws CancellationException Si le tirage est annulé.
+     */
+    public DrawTotals executer ( long premierId, long nbBulletins, Grille gagnante ) {
+        DrawMetrics metriques = this.metriques;
+        long debut = System.nanoTime();
+        DrawTotals totaux = this.pool.invoke(new TacheBlocs(premierId, nbBulletins, gagnante, 0, nbBlocs(nbBulletins),
+                this.fabrique.apply(this.graine), null, true, metriques, this.annulation));
+        if ( metriques != null ) {
+            metriques.ajouterDuree(System.nanoTime() - debut);
+        }
+        return totaux;
+    }
+
+    /**
+     * Génère et compte des bulletins dans le thread courant, bloc par bloc,
+     * avec le même découpage (et donc les mêmes sources) qu'en parallèle.
+     * Chaque bulletin est transmis à la sortie dans l'ordre des identifiants,
+     * puis abandonné: pour les conserver, passer par exemple store::ajouter.
+     * L'objet transmis est réutilisé pour le bulletin suivant: la sortie doit
+     * en copier le contenu, et non garder sa référence.
+     * @param premierId L'identifiant du premier bulletin.
+     * @param nbBulletins Le nombre de bulletins à générer.
+     * @param gagnante La grille gagnante du tirage.
+     * @param sortie Destination des bulletins générés (peut être nulle).
+     * @return Les totaux du tirage.
+     * @throws CancellationException Si le tirage est annulé.
+     */
+    public DrawTotals executerSequentiel ( long premierId, long nbBulletins, Grille gagnante, Consumer<Bulletin> sortie ) {
+        DrawMetrics metriques = this.metriques;
+        long debut = System.nanoTime();
+        DrawTotals totaux = new TacheBlocs(premierId, nbBulletins, gagnante, 0, nbBlocs(nbBulletins),
+                this.fabrique.apply(this.graine), sortie, false, metriques, this.annulation).compute();
+        if ( metriques != null ) {
+            metriques.ajouterDuree(System.nanoTime() - debut);
+        }
+        return totaux;
+    }
+
+    /**
+     * Génère et compte les bulletins d'un bloc.
+     * @param bloc Le numéro du bloc.
+     * @param r La source aléatoire de la tâche.
+     * @param totaux Les totaux à alimenter.
+     * @param sortie Destination des bulletins générés (peut être nulle).
+     */
+    private static void genererBloc ( long premierId, long nbBulletins, Grille gagnante, int bloc,
+            RandomSource r, DrawTotals totaux, Consumer<Bulletin> sortie ) {
+        Bulletin bulletin = null;
+        long i, fin = Math.min( (long) (bloc + 1) * TAILLE_BLOC, nbBulletins );
+
+        for ( i = (long) bloc * TAILLE_BLOC; i < fin; i++ ) {
+            if ( bulletin == null ) {
+                bulletin = new Bulletin(premierId + i, (byte) 0, gagnante, r);
+            } else {
+                bulletin.regenerer(premierId + i, (byte) 0, gagnante, r);
+            }
+            totaux.ajouterBulletin(bulletin);
+            if ( sortie != null ) {
+                sortie.accept(bulletin);
+            }
+        }
+    }
+
+    /**
+     * Génère et compte les bulletins d'un bloc en mesurant chaque phase.
+     * Mêmes résultats que genererBloc(): seules les mesures s'y ajoutent.
+     * @param metriques Les métriques à alimenter.
+     */
+    private static void genererBlocMesure ( long premierId, long nbBulletins, Grille gagnante, int bloc,
+            RandomSource r, DrawTotals totaux, Consumer<Bulletin> sortie, DrawMetrics metriques ) {
+        DrawMetrics.SourceComptee source = new DrawMetrics.SourceComptee(r);
+        Bulletin bulletin = null;
+        long i, debut = (long) bloc * TAILLE_BLOC, fin = Math.min( (long) (bloc + 1) * TAILLE_BLOC, nbBulletins );
+        long t0, t1, t2, t3, t4, generation = 0L, scoring = 0L, agregation = 0L, ecriture = 0L, nbGrilles = 0L;
+        long octets = metriques.octetsAllouesThread();
+
+        for ( i = debut; i < fin; i++ ) {
+            t0 = System.nanoTime();
+            if ( bulletin == null ) {
+                bulletin = new Bulletin(premierId + i, (byte) 0, null, source);
+            } else {
+                bulletin.regenerer(premierId + i, (byte) 0, null, source);
+            }
+            t1 = System.nanoTime();
+            bulletin.setGrilleGagnante(gagnante);
+            t2 = System.nanoTime();
+            totaux.ajouterBulletin(bulletin);
+            t3 = System.nanoTime();
+            if ( sortie != null ) {
+                sortie.accept(bulletin);
+            }
+            t4 = System.nanoTime();
+            generation += t1 - t0;
+            scoring += t2 - t1;
+            agregation += t3 - t2;
+            ecriture += t4 - t3;
+            nbGrilles += bulletin.getNombreGrilles();
+        }
+        if ( octets >= 0 ) {
+            octets = metriques.octetsAllouesThread() - octets;
+        }
+        metriques.ajouterBloc(fin - debut, nbGrilles, source.nbTirages, generation, scoring, agregation, ecriture, octets);
+    }
+
+    /**
+     * Nombre de blocs nécessaires pour un nombre de bulletins.
+     * @throws IllegalArgumentException Si le nombre de bulletins est négatif.
+     * @throws ArithmeticException Si le nombre de blocs dépasse la capacité d'un int.
+     */
+    private static int nbBlocs ( long nbBulletins ) {
+        if ( nbBulletins < 0 ) {
+            throw new IllegalArgumentException("Le nombre de bulletins (" + nbBulletins + ") est négatif.");
+        }
+        return Math.toIntExact(( nbBulletins + TAILLE_BLOC - 1 ) / TAILLE_BLOC);
+    }
+
+    /**
+     * Tâche fork/join traitant une plage de blocs, avec ses propres totaux et sa propre source.
+     * En parallèle, la moitié gauche est confiée au pool; sinon, tout est
+     * traité dans l'ordre par le thread courant.
+     */
+    @SuppressWarnings("serial")  // Tâche jamais sérialisée
+    private static class TacheBlocs extends RecursiveTask<DrawTotals> {
+
+        private final long premierId, nbBulletins;
+        private final int blocDebut, blocFin;
+        private final Grille gagnante;
+        private final RandomSource source;
+        private final Consumer<Bulletin> sortie;
+        private final boolean parallele;
+        private final DrawMetrics metriques;
+        private final BooleanSupplier annulation;
+
+        TacheBlocs ( long premierId, long nbBulletins, Grille gagnante, int blocDebut, int blocFin,
+                RandomSource source, Consumer<Bulletin> sortie, boolean parallele, DrawMetrics metriques,
+                BooleanSupplier annulation ) {
+            this.premierId = premierId;
+            this.nbBulletins = nbBulletins;
+            this.gagnante = gagnante;
+            this.blocDebut = blocDebut;
+            this.blocFin = blocFin;
+            this.source = source;
+            this.sortie = sortie;
+            this.parallele = parallele;
+            this.metriques = metriques;
+            this.annulation = annulation;
+        }
+
+        @Override
+        protected DrawTotals compute () {
+            DrawTotals totaux;
+
+            if ( this.blocFin - this.blocDebut <= 1 ) {
+                if ( this.annulation != null && this.annulation.getAsBoolean() ) {
+                    throw new CancellationException("Le tirage a été annulé.");
+                }
+                totaux = new DrawTotals();
+                if ( this.blocFin > this.blocDebut && this.metriques == null ) {
+                    genererBloc(this.premierId, this.nbBulletins, this.gagnante, this.blocDebut,
+                            this.source, totaux, this.sortie);
+                } else if ( this.blocFin > this.blocDebut ) {
+                    genererBlocMesure(this.premierId, this.nbBulletins, this.gagnante, this.blocDebut,
+                            this.source, totaux, this.sortie, this.metriques);
+                }
+            } else {
+                // Découpage en deux moitiés, la gauche reçoit une source séparée de celle-ci
+                int milieu = (this.blocDebut + this.blocFin) >>> 1;
+                TacheBlocs gauche = new TacheBlocs(this.premierId, this.nbBulletins, this.gagnante,
+                        this.blocDebut, milieu, this.source.split(), this.sortie, this.parallele, this.metriques, this.annulation);
+                TacheBlocs droite = new TacheBlocs(this.premierId, this.nbBulletins, this.gagnante,
+                        milieu, this.blocFin, this.source, this.sortie, this.parallele, this.metriques, this.annulation);
+                if ( this.parallele ) {
+                    gauche.fork();
+                    totaux = droite.compute();
+                    totaux.fusionner(gauche.join());
+                } else {
+                    totaux = gauche.compute();
+                    totaux.fusionner(droite.compute());
+                }
+            }
+            return totaux;
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+package NFA031.LotoJava;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Comptabilité d'un tirage tenue au fil de l'eau: les bulletins enregistrés
+ * après le tirage, ou annulés, mettent à jour les totaux (mises, gagnants par
+ * rang) sans tout recompter. Ajouter ou retirer un bulletin coûte une ligne de
+ * TableRangs par grille; les gains par combinaison se recalculent à partir des
+ * seuls totaux par rang, quel que soit le nombre de bulletins.
+ * Les compteurs sont répartis (LongAdder): plusieurs threads peuvent ajouter et
+ * retirer des bulletins en même temps sans se bloquer. Un relevé (getTotaux())
+ * pris pendant des mises à jour peut inclure une partie seulement d'un bulletin
+ * en cours d'ajout; il est exact dès que les mises à jour sont terminées.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class DrawLedger {
+
+    // Grille gagnante du tirage
+    private final Grille gagnante;
+    // Compteurs répartis
+    private final LongAdder nbBulletins = new LongAdder();
+    private final LongAdder nbGrilles = new LongAdder();
+    private final LongAdder totalMises = new LongAdder();
+    private final LongAdder gagnantsParRang[] = new LongAdder[TableRangs.NB_RANGS];
+
+    /**
+     * Constructeur: comptabilité vide.
+     * @param gagnante La grille gagnante du tirage.
+     * @throws NullPointerException Si la grille gagnante est nulle.
+     */
+    public DrawLedger ( Grille gagnante ) {
+        byte b;
+
+        if ( gagnante == null ) {
+            throw new NullPointerException("La grille gagnante fournie est nulle !");
+        }
+        this.gagnante = gagnante;
+        for ( b = 0; b < this.gagnantsParRang.length; b++ ) {
+            this.gagnantsParRang[b] = new LongAdder();
+        }
+    }
+
+    /**
+     * Constructeur: comptabilité reprenant les totaux d'un tirage exécuté.
+     * @param resultat Le résultat du tirage.
+     */
+    public DrawLedger ( DrawResult resultat ) {
+        this( resultat.getGagnante() );
+        this.ajouter(resultat.getTotaux());
+    }
+
+    /**
+     * Retourne la grille gagnante du tirage.
+     * @return La grille gagnante.
+     */
+    public Grille getGagnante() {
+        return this.gagnante;
+    }
+
+    /**
+     * Enregistre un bulletin. Ses grilles sont comparées à la grille gagnante
+     * du tirage par leurs masques: le bulletin n'est pas modifié.
+     * @param bulletin Le bulletin à ajouter.
+     */
+    public void ajouter ( Bulletin bulletin ) {
+        this.compter(bulletin, 1L);
+    }
+
+    /**
+     * Annule un bulletin précédemment enregistré (il n'est pas vérifié qu'il l'a été).
+     * @param bulletin Le bulletin à retirer.
+     */
+    public void retirer ( Bulletin bulletin ) {
+        this.compter(bulletin, -1L);
+    }
+
+    /**
+     * Ajoute des totaux calculés par ailleurs (tirage exécuté, lot de bulletins).
+     * @param totaux Les totaux à ajouter.
+     */
+    public void ajouter ( DrawTotals totaux ) {
+        long gagnants[] = totaux.getGagnantsParRang();
+        byte b;
+
+        this.nbBulletins.add(totaux.getNbBulletins());
+        this.nbGrilles.add(totaux.getNbGrilles());
+        this.totalMises.add(totaux.getTotalMises());
+        for ( b = 0; b < gagnants.length; b++ ) {
+            this.gagnantsParRang[b].add(gagnants[b]);
+        }
+    }
+
+    /**
+     * Ajoute (signe 1) ou retire (signe -1) un bulletin des compteurs.
+     * Les compteurs par rang sont d'abord cumulés localement, puis ajoutés
+     * une seule fois par rang.
+     */
+    private void compter ( Bulletin bulletin, long signe ) {
+        long gagnants[] = new long[TableRangs.NB_RANGS];
+        byte b, nb = bulletin.getNombreGrilles();
+        Grille grille;
+
+        for ( b = 0; b < nb; b++ ) {
+            grille = bulletin.getGrille(b);
+            TableRangs.ajouterLigne(TableRangs.index(grille.getMasqueNumeros(), grille.getMasqueNumerosChance(),
+                    this.gagnante), gagnants);
+        }
+        this.nbBulletins.add(signe);
+        this.nbGrilles.add(signe * nb);
+        this.totalMises.add(signe * bulletin.getTotalMises());
+        for ( b = 0; b < gagnants.length; b++ ) {
+            if ( gagnants[b] != 0 ) {
+                this.gagnantsParRang[b].add(signe * gagnants[b]);
+            }
+        }
+    }
+
+    /**
+     * Relève les totaux courants.
+     * @return Les totaux (copie indépendante de la comptabilité).
+     */
+    public DrawTotals getTotaux() {
+        long gagnants[] = new long[this.gagnantsParRang.length];
+        byte b;
+
+        for ( b = 0; b < gagnants.length; b++ ) {
+            gagnants[b] = this.gagnantsParRang[b].sum();
+        }
+        return new DrawTotals(this.nbBulletins.sum(), this.nbGrilles.sum(), this.totalMises.sum(), gagnants);
+    }
+
+    /**
+     * Retourne le nombre de bulletins enregistrés.
+     * @return Le nombre de bulletins.
+     */
+    public long getNbBulletins() {
+        return this.nbBulletins.sum();
+    }
+
+    /**
+     * Retourne le total des sommes misées.
+     * @return Le total des mises en euros.
+     */
+    public long getTotalMises() {
+        return this.totalMises.sum();
+    }
+
+    /**
+     * Retourne le nombre de combinaisons gagnantes par rang (index 0 pour le rang 1).
+     * @return Le tableau des nombres de gagnants par rang.
+     */
+    public long[] getGagnantsParRang() {
+        return this.getTotaux().getGagnantsParRang();
+    }
+
+    /**
+     * Retourne le gain de chaque combinaison gagnante, par rang, arrondi au centime.
+     * @return Le tableau des gains par rang, en euros (0 pour un rang sans gagnant).
+     */
+    public BigDecimal[] getGainsParCombinaison() {
+        return this.getTotaux().getGainsParCombinaison();
+    }
+
+    /**
+     * Retourne la somme misée mais non gagnée (parts des rangs sans gagnant).
+     * @return La somme remise en jeu, en euros.
+     */
+    public BigDecimal getMisesNonRemportees() {
+        return this.getTotaux().getMisesNonRemportees();
+    }
+
+}
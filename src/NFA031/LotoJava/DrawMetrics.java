@@ -0,0 +1,246 @@
+package NFA031.LotoJava;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Métriques d'exécution des tirages: temps par phase (génération, comparaison,
+ * agrégation, sortie), compteurs, débit et mémoire allouée par bulletin.
+ * Chaque tâche du moteur mesure ses blocs localement et n'ajoute ses valeurs
+ * qu'une fois par bloc, dans des compteurs répartis (LongAdder).
+ * Enregistrées auprès du serveur JMX, les métriques sont à fermer (close())
+ * en fin d'exécution pour en être retirées.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class DrawMetrics implements DrawMetricsMBean, AutoCloseable {
+
+    // Compteurs cumulés
+    private final LongAdder nbBulletins = new LongAdder();
+    private final LongAdder nbGrilles = new LongAdder();
+    private final LongAdder nbTiragesAleatoires = new LongAdder();
+    private final LongAdder tempsGeneration = new LongAdder();
+    private final LongAdder tempsScoring = new LongAdder();
+    private final LongAdder tempsAgregation = new LongAdder();
+    private final LongAdder tempsSortie = new LongAdder();
+    private final LongAdder duree = new LongAdder();
+    private final LongAdder octetsAlloues = new LongAdder();
+    // Mesure des allocations par thread (null si non disponible)
+    private final com.sun.management.ThreadMXBean threads;
+    // Nom JMX de ces métriques (null si elles ne sont pas enregistrées)
+    private ObjectName nomJmx = null;
+
+    /** Constructeur: métriques à zéro. */
+    public DrawMetrics () {
+        com.sun.management.ThreadMXBean threads = null;
+        if ( ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean ) {
+            threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if ( !threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled() ) {
+                threads = null;
+            }
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Enregistre ces métriques auprès du serveur JMX de la plateforme, jusqu'à leur fermeture.
+     * Si le nom est déjà pris (métriques d'un autre tirage encore ouvertes), elles ne
+     * sont pas enregistrées: les mesures restent disponibles par les accesseurs.
+     * @param nom Le nom de l'instance (par exemple la date du tirage).
+     * @return False si le nom est déjà enregistré.
+     * @throws IllegalStateException Si les métriques sont déjà enregistrées, ou si l'enregistrement est impossible.
+     */
+    public synchronized boolean enregistrer ( String nom ) {
+        ObjectName nomJmx;
+
+        if ( this.nomJmx != null ) {
+            throw new IllegalStateException("Les métriques sont déjà enregistrées (" + this.nomJmx + ").");
+        }
+        try {
+            nomJmx = new ObjectName("NFA031.LotoJava:type=DrawMetrics,name=" + ObjectName.quote(nom));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, nomJmx);
+        } catch ( InstanceAlreadyExistsException e ) {
+            return false;
+        } catch ( JMException e ) {
+            throw new IllegalStateException("Enregistrement JMX des métriques impossible.", e);
+        }
+        this.nomJmx = nomJmx;
+        return true;
+    }
+
+    /**
+     * Retire ces métriques du serveur JMX, si elles y sont enregistrées.
+     * Les mesures restent disponibles par les accesseurs.
+     */
+    @Override
+    public synchronized void close () {
+        if ( this.nomJmx != null ) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.nomJmx);
+            } catch ( InstanceNotFoundException e ) {
+                // Déjà retirées par ailleurs
+            } catch ( JMException e ) {
+                throw new IllegalStateException("Retrait JMX des métriques impossible.", e);
+            }
+            this.nomJmx = null;
+        }
+    }
+
+    /**
+     * Retourne la mémoire allouée jusqu'ici par le thread courant.
+     * @return Le nombre d'octets alloués, -1 si la mesure n'est pas disponible.
+     */
+    long octetsAllouesThread () {
+        return this.threads != null ? this.threads.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1L;
+    }
+
+    /**
+     * Ajoute les mesures d'un bloc de bulletins.
+     * @param nbBulletins Le nombre de bulletins du bloc.
+     * @param nbGrilles Le nombre de grilles du bloc.
+     * @param nbTirages Le nombre de tirages aléatoires consommés.
+     * @param generation Le temps de génération (ns).
+     * @param scoring Le temps de comparaison (ns).
+     * @param agregation Le temps d'agrégation (ns).
+     * @param sortie Le temps d'écriture (ns).
+     * @param octets La mémoire allouée par le bloc (-1 si non mesurée).
+     */
+    void ajouterBloc ( long nbBulletins, long nbGrilles, long nbTirages, long generation, long scoring,
+            long agregation, long sortie, long octets ) {
+        this.nbBulletins.add(nbBulletins);
+        this.nbGrilles.add(nbGrilles);
+        this.nbTiragesAleatoires.add(nbTirages);
+        this.tempsGeneration.add(generation);
+        this.tempsScoring.add(scoring);
+        this.tempsAgregation.add(agregation);
+        this.tempsSortie.add(sortie);
+        if ( octets >= 0 ) {
+            this.octetsAlloues.add(octets);
+        }
+    }
+
+    /**
+     * Ajoute la durée réelle d'un tirage.
+     * @param dureeNs La durée en nanosecondes.
+     */
+    void ajouterDuree ( long dureeNs ) {
+        this.duree.add(dureeNs);
+    }
+
+    @Override
+    public long getNbBulletins () {
+        return this.nbBulletins.sum();
+    }
+
+    @Override
+    public long getNbGrilles () {
+        return this.nbGrilles.sum();
+    }
+
+    @Override
+    public long getNbTiragesAleatoires () {
+        return this.nbTiragesAleatoires.sum();
+    }
+
+    @Override
+    public long getTempsGenerationNs () {
+        return this.tempsGeneration.sum();
+    }
+
+    @Override
+    public long getTempsScoringNs () {
+        return this.tempsScoring.sum();
+    }
+
+    @Override
+    public long getTempsAgregationNs () {
+        return this.tempsAgregation.sum();
+    }
+
+    @Override
+    public long getTempsSortieNs () {
+        return this.tempsSortie.sum();
+    }
+
+    @Override
+    public long getDureeNs () {
+        return this.duree.sum();
+    }
+
+    @Override
+    public double getBulletinsParSeconde () {
+        long duree = this.getDureeNs();
+        return duree > 0 ? this.getNbBulletins() * 1e9D / duree : 0.0D;
+    }
+
+    @Override
+    public double getOctetsAllouesParBulletin () {
+        long nb = this.getNbBulletins();
+        return ( this.threads != null && nb > 0 ) ? (double) this.octetsAlloues.sum() / nb : -1.0D;
+    }
+
+    @Override
+    public void reinitialiser () {
+        this.nbBulletins.reset();
+        this.nbGrilles.reset();
+        this.nbTiragesAleatoires.reset();
+        this.tempsGeneration.reset();
+        this.tempsScoring.reset();
+        this.tempsAgregation.reset();
+        this.tempsSortie.reset();
+        this.duree.reset();
+        this.octetsAlloues.reset();
+    }
+
+    /**
+     * Retourne un résumé des métriques au format JSON, sur une ligne.
+     * @return Le résumé JSON.
+     */
+    public String toJson () {
+        return "{\"bulletins\":" + this.getNbBulletins()
+                + ",\"grilles\":" + this.getNbGrilles()
+                + ",\"tiragesAleatoires\":" + this.getNbTiragesAleatoires()
+                + ",\"generationNs\":" + this.getTempsGenerationNs()
+                + ",\"scoringNs\":" + this.getTempsScoringNs()
+                + ",\"agregationNs\":" + this.getTempsAgregationNs()
+                + ",\"sortieNs\":" + this.getTempsSortieNs()
+                + ",\"dureeNs\":" + this.getDureeNs()
+                + ",\"bulletinsParSeconde\":" + Math.round(this.getBulletinsParSeconde())
+                + ",\"octetsParBulletin\":" + Math.round(this.getOctetsAllouesParBulletin())
+                + "}";
+    }
+
+    /**
+     * Source aléatoire qui compte les tirages consommés (utilisée par une seule tâche à la fois).
+     */
+    static class SourceComptee implements RandomSource {
+
+        private final RandomSource source;
+        long nbTirages = 0L;
+
+        SourceComptee ( RandomSource source ) {
+            this.source = source;
+        }
+
+        @Override
+        public int nextInt ( int borne ) {
+            this.nbTirages++;
+            return this.source.nextInt(borne);
+        }
+
+        @Override
+        public long nextLong () {
+            this.nbTirages++;
+            return this.source.nextLong();
+        }
+
+        @Override
+        public RandomSource split () {
+            return this.source.split();
+        }
+    }
+
+}
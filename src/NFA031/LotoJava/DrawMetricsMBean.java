@@ -0,0 +1,43 @@
+package NFA031.LotoJava;
+
+/**
+ * Interface JMX des métriques d'un tirage (voir DrawMetrics).
+ * Les durées sont cumulées sur tous les threads, en nanosecondes.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public interface DrawMetricsMBean {
+
+    /** @return Le nombre de bulletins générés. */
+    long getNbBulletins ();
+
+    /** @return Le nombre de grilles générées. */
+    long getNbGrilles ();
+
+    /** @return Le nombre de tirages aléatoires consommés par la génération. */
+    long getNbTiragesAleatoires ();
+
+    /** @return Le temps de génération des bulletins (choix des numéros). */
+    long getTempsGenerationNs ();
+
+    /** @return Le temps de comparaison des grilles à la grille gagnante. */
+    long getTempsScoringNs ();
+
+    /** @return Le temps d'agrégation des rangs et des mises dans les totaux. */
+    long getTempsAgregationNs ();
+
+    /** @return Le temps d'écriture des bulletins vers la sortie. */
+    long getTempsSortieNs ();
+
+    /** @return La durée réelle des tirages (horloge murale). */
+    long getDureeNs ();
+
+    /** @return Le nombre de bulletins traités par seconde de durée réelle. */
+    double getBulletinsParSeconde ();
+
+    /** @return La mémoire allouée par bulletin en octets, -1 si la JVM ne la mesure pas. */
+    double getOctetsAllouesParBulletin ();
+
+    /** Remet toutes les métriques à zéro. */
+    void reinitialiser ();
+
+}
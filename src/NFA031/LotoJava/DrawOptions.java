@@ -0,0 +1,242 @@
+package NFA031.LotoJava;
+
+/**
+ * Options de la ligne de commande du programme (mode non interactif).
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class DrawOptions {
+
+    /** Format de sortie texte (rapport lisible). */
+    public final static String FORMAT_TEXTE = "texte";
+    /** Format de sortie JSON (une ligne). */
+    public final static String FORMAT_JSON = "json";
+
+    /** Aide de la ligne de commande. */
+    public final static String USAGE =
+            "Usage: Loto -n <bulletins> [options]\n"
+            + "  -n, --bulletins <n>    Nombre de bulletins à créer (obligatoire)\n"
+            + "  -d, --date <date>      Date du tirage (dd-mm-yyyy ou dd-mm-yy)\n"
+            + "  -s, --graine <n>       Graine du tirage, pour le rejouer à l'identique\n"
+            + "  -t, --threads <n>      Nombre de threads (par défaut: tous les cœurs; sans -v ni -a,\n"
+            + "                         qui génèrent les bulletins dans l'ordre, sur un seul thread)\n"
+            + "  -f, --format <f>       Format de sortie: texte (par défaut) ou json\n"
+            + "  -v, --verbeux          Affiche les bulletins générés (format texte)\n"
+            + "  -m, --metriques        Affiche les métriques d'exécution\n"
+            + "  -a, --archive <f>      Enregistre les grilles du tirage dans le fichier d'archive f\n"
+            + "      --tirages <n>      Simule n tirages indépendants (format texte)\n"
+            + "      --serveur <port>   Démarre le serveur de tirages sur le port local donné\n"
+            + "                         (les autres options sont alors données par demande)\n"
+            + "  -h, --aide             Affiche cette aide\n"
+            + "Sans option, le programme demande les paramètres sur l'entrée standard.";
+
+    // Valeurs des options
+    private long nbBulletins = -1L;
+    private String date = null;
+    private Long graine = null;
+    private int nbThreads = 0;
+    private String format = FORMAT_TEXTE;
+    private boolean verbeux = false;
+    private boolean metriques = false;
+    private String archive = null;
+    private int nbTirages = 0;
+    private int portServeur = -1;
+    private boolean aide = false;
+
+    // Instances créées par lire()
+    private DrawOptions () {
+    }
+
+    /**
+     * Indique si des arguments sont des options (et non les arguments positionnels
+     * du mode interactif: graine, nombre de tirages).
+     * @param args Les arguments du programme.
+     * @return True si le premier argument est une option.
+     */
+    public static boolean sontDesOptions ( String args[] ) {
+        return args.length > 0 && args[0].length() > 1 && args[0].charAt(0) == '-'
+                && !Character.isDigit(args[0].charAt(1));
+    }
+
+    /**
+     * Lit les options de la ligne de commande.
+     * @param args Les arguments du programme.
+     * @return Les options lues.
+     * @throws IllegalArgumentException Si une option est inconnue, incomplète ou invalide.
+     */
+    public static DrawOptions lire ( String args[] ) {
+        DrawOptions options = new DrawOptions();
+        int i;
+
+        for ( i = 0; i < args.length; i++ ) {
+            switch ( args[i] ) {
+                case "-n":
+                case "--bulletins":
+                    options.nbBulletins = entierLong(args, ++i, 1);
+                    break;
+                case "-d":
+                case "--date":
+                    options.date = valeur(args, ++i);
+                    if ( DateTirage.lire(options.date) == DateTirage.INVALIDE ) {
+                        throw new IllegalArgumentException("La date fournie (" + options.date + ") n'est pas valide.");
+                    }
+                    break;
+                case "-s":
+                case "--graine":
+                    try {
+                        options.graine = Long.parseLong(valeur(args, ++i));
+                    } catch ( NumberFormatException e ) {
+                        throw new IllegalArgumentException("La graine fournie (" + args[i] + ") n'est pas un entier.");
+                    }
+                    break;
+                case "-t":
+                case "--threads":
+                    options.nbThreads = entier(args, ++i, 1);
+                    break;
+                case "-f":
+                case "--format":
+                    options.format = valeur(args, ++i).toLowerCase();
+                    if ( !options.format.equals(FORMAT_TEXTE) && !options.format.equals(FORMAT_JSON) ) {
+                        throw new IllegalArgumentException("Le format demandé (" + options.format + ") est inconnu.");
+                    }
+                    break;
+                case "-v":
+                case "--verbeux":
+                    options.verbeux = true;
+                    break;
+                case "-m":
+                case "--metriques":
+                    options.metriques = true;
+                    break;
+                case "-a":
+                case "--archive":
+                    options.archive = valeur(args, ++i);
+                    break;
+                case "--tirages":
+                    options.nbTirages = entier(args, ++i, 1);
+                    break;
+                case "--serveur":
+                    options.portServeur = entier(args, ++i, 0);
+                    if ( options.portServeur > 65535 ) {
+                        throw new IllegalArgumentException("Le port demandé (" + options.portServeur + ") "
+                                + "est supérieur au maximum (65535).");
+                    }
+                    break;
+                case "-h":
+                case "--aide":
+                    options.aide = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Option inconnue: " + args[i]);
+            }
+        }
+
+        if ( !options.aide && options.portServeur < 0 ) {
+            if ( options.nbBulletins < 0 ) {
+                throw new IllegalArgumentException("Le nombre de bulletins (-n) est obligatoire.");
+            }
+            if ( options.format.equals(FORMAT_JSON) && (options.verbeux || options.nbTirages > 0) ) {
+                throw new IllegalArgumentException("Les options --verbeux et --tirages n'existent qu'au format texte.");
+            }
+            if ( options.archive != null && options.nbTirages > 0 ) {
+                throw new IllegalArgumentException("L'option --archive n'existe que pour un tirage unique.");
+            }
+            if ( options.nbThreads > 0 && options.nbTirages == 0 && (options.verbeux || options.archive != null) ) {
+                throw new IllegalArgumentException("L'option --threads n'existe pas avec --verbeux ou --archive "
+                        + "(bulletins générés sur un seul thread).");
+            }
+        }
+        return options;
+    }
+
+    /** Retourne la valeur d'une option. */
+    private static String valeur ( String args[], int i ) {
+        if ( i >= args.length ) {
+            throw new IllegalArgumentException("Valeur manquante après l'option " + args[i - 1] + ".");
+        }
+        return args[i];
+    }
+
+    /** Retourne la valeur entière d'une option, avec un minimum. */
+    private static int entier ( String args[], int i, int min ) {
+        long n = entierLong(args, i, min);
+
+        if ( n > Integer.MAX_VALUE ) {
+            throw new IllegalArgumentException("La valeur de l'option " + args[i - 1] + " (" + n + ") "
+                    + "est supérieure au maximum (" + Integer.MAX_VALUE + ").");
+        }
+        return (int) n;
+    }
+
+    /** Retourne la valeur entière 64 bits d'une option, avec un minimum. */
+    private static long entierLong ( String args[], int i, long min ) {
+        long n;
+
+        try {
+            n = Long.parseLong(valeur(args, i));
+        } catch ( NumberFormatException e ) {
+            throw new IllegalArgumentException("La valeur de l'option " + args[i - 1] + " (" + args[i] + ") "
+                    + "n'est pas un entier.");
+        }
+        if ( n < min ) {
+            throw new IllegalArgumentException("La valeur de l'option " + args[i - 1] + " (" + n + ") "
+                    + "est inférieure au minimum (" + min + ").");
+        }
+        return n;
+    }
+
+    /** @return Le nombre de bulletins à créer. */
+    public long getNbBulletins() {
+        return this.nbBulletins;
+    }
+
+    /** @return La date du tirage, ou null. */
+    public String getDate() {
+        return this.date;
+    }
+
+    /** @return La graine du tirage, ou null pour une graine aléatoire. */
+    public Long getGraine() {
+        return this.graine;
+    }
+
+    /** @return Le nombre de threads (0 pour tous les cœurs). */
+    public int getNbThreads() {
+        return this.nbThreads;
+    }
+
+    /** @return Le format de sortie (FORMAT_TEXTE ou FORMAT_JSON). */
+    public String getFormat() {
+        return this.format;
+    }
+
+    /** @return True si les bulletins doivent être affichés. */
+    public boolean isVerbeux() {
+        return this.verbeux;
+    }
+
+    /** @return True si les métriques doivent être affichées. */
+    public boolean isMetriques() {
+        return this.metriques;
+    }
+
+    /** @return Le chemin du fichier d'archive à écrire, ou null. */
+    public String getArchive() {
+        return this.archive;
+    }
+
+    /** @return Le nombre de tirages à simuler (0: tirage unique). */
+    public int getNbTirages() {
+        return this.nbTirages;
+    }
+
+    /** @return Le port du serveur de tirages à démarrer (-1: pas de serveur). */
+    public int getPortServeur() {
+        return this.portServeur;
+    }
+
+    /** @return True si l'aide est demandée. */
+    public boolean isAide() {
+        return this.aide;
+    }
+
+}
@@ -0,0 +1,234 @@
+package NFA031.LotoJava;
+
+import java.math.BigDecimal;
+
+/**
+ * Résultat d'un tirage exécuté par DrawRunner: paramètres du tirage, grille
+ * gagnante, totaux et gains. L'objet est immuable.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class DrawResult {
+
+    // Date du tirage (peut être nulle)
+    private final String date;
+    // Graine du tirage
+    private final long graine;
+    // Grille gagnante
+    private final Grille gagnante;
+    // Totaux calculés par le moteur
+    private final DrawTotals totaux;
+    // Durée de l'exécution en nanosecondes
+    private final long dureeNs;
+    // Métriques d'exécution (peut être nul)
+    private final DrawMetrics metriques;
+
+    /**
+     * Constructeur.
+     * @param date La date du tirage (peut être nulle).
+     * @param graine La graine du tirage.
+     * @param gagnante La grille gagnante.
+     * @param totaux Les totaux du tirage.
+     * @param dureeNs La durée de l'exécution en nanosecondes.
+     * @param metriques Les métriques d'exécution (peut être nul).
+     */
+    DrawResult ( String date, long graine, Grille gagnante, DrawTotals totaux, long dureeNs, DrawMetrics metriques ) {
+        this.date = date;
+        this.graine = graine;
+        this.gagnante = gagnante;
+        this.totaux = totaux;
+        this.dureeNs = dureeNs;
+        this.metriques = metriques;
+    }
+
+    /**
+     * Retourne la date du tirage.
+     * @return La date, ou null si elle n'a pas été fournie.
+     */
+    public String getDate() {
+        return this.date;
+    }
+
+    /**
+     * Retourne la graine du tirage (pour le rejouer à l'identique).
+     * @return La graine.
+     */
+    public long getGraine() {
+        return this.graine;
+    }
+
+    /**
+     * Retourne la grille gagnante du tirage.
+     * @return La grille gagnante.
+     */
+    public Grille getGagnante() {
+        return this.gagnante;
+    }
+
+    /**
+     * Retourne le nombre de bulletins joués.
+     * @return Le nombre de bulletins.
+     */
+    public long getNbBulletins() {
+        return this.totaux.getNbBulletins();
+    }
+
+    /**
+     * Retourne le nombre de grilles jouées.
+     * @return Le nombre de grilles.
+     */
+    public long getNbGrilles() {
+        return this.totaux.getNbGrilles();
+    }
+
+    /**
+     * Retourne le total des sommes misées.
+     * @return Le total des mises en euros.
+     */
+    public long getTotalMises() {
+        return this.totaux.getTotalMises();
+    }
+
+    /**
+     * Retourne le nombre de combinaisons gagnantes par rang (index 0 pour le rang 1).
+     * @return Le tableau des nombres de gagnants par rang.
+     */
+    public long[] getGagnantsParRang() {
+        return this.totaux.getGagnantsParRang();
+    }
+
+    /**
+     * Retourne la part des mises revenant à chaque rang, exacte et arrondie au centime.
+     * @return Le tableau des sommes par rang, en euros (index 0 pour le rang 1).
+     */
+    public BigDecimal[] getMisesParRang() {
+        return this.totaux.getMisesParRangExactes();
+    }
+
+    /**
+     * Retourne le gain de chaque combinaison gagnante, par rang, arrondi au centime.
+     * @return Le tableau des gains par rang, en euros (0 pour un rang sans gagnant).
+     */
+    public BigDecimal[] getGainsParCombinaison() {
+        return this.totaux.getGainsParCombinaison();
+    }
+
+    /**
+     * Retourne la somme misée mais non gagnée (parts des rangs sans gagnant, et arrondis).
+     * @return La somme remise en jeu, en euros.
+     */
+    public BigDecimal getMisesNonRemportees() {
+        return this.totaux.getMisesNonRemportees();
+    }
+
+    /** Totaux du tirage (non copiés: à ne pas modifier). */
+    DrawTotals getTotaux() {
+        return this.totaux;
+    }
+
+    /**
+     * Retourne la durée de l'exécution du tirage.
+     * @return La durée en nanosecondes.
+     */
+    public long getDureeNs() {
+        return this.dureeNs;
+    }
+
+    /**
+     * Retourne les métriques d'exécution du tirage.
+     * @return Les métriques, ou null si elles n'ont pas été mesurées.
+     */
+    public DrawMetrics getMetriques() {
+        return this.metriques;
+    }
+
+    /** Rapport du tirage: totaux, répartition des gains et gains par combinaison. */
+    @Override
+    public String toString () {
+        StringBuilder texte = new StringBuilder();
+        long gagnantsParRang[] = this.getGagnantsParRang();
+        BigDecimal misesParRang[] = this.getMisesParRang(), gains[] = this.getGainsParCombinaison();
+        byte b;
+
+        texte.append("Date du tirage: ").append(this.date != null ? this.date : "-").append('\n');
+        texte.append("Graine du tirage: ").append(this.graine).append('\n');
+        texte.append("Nombre total de bulletins joués: ").append(this.getNbBulletins()).append('\n');
+        texte.append("Nombre total de grilles jouées: ").append(this.getNbGrilles()).append('\n');
+        texte.append("Total des mises jouées: ").append(this.getTotalMises()).append(" €.\n");
+
+        // Gains totaux par rang
+        texte.append("Répartition des gains totaux: \n");
+        for ( b = 0; b < misesParRang.length; b++ ) {
+            texte.append("Rang ").append(b + 1).append(": ").append(misesParRang[b]).append(" €\n");
+        }
+
+        // Nombre de combinaisons et gains par combinaison, par rang
+        texte.append("Gains des combinaisons gagnantes par rang: \n");
+        for ( b = 0; b < gagnantsParRang.length; b++ ) {
+            texte.append("Rang ").append(b + 1).append(": ").append(gagnantsParRang[b]);
+            if ( gagnantsParRang[b] > 0 ) {
+                texte.append("\t-> ").append(gains[b]).append(" €\tpar combinaison");
+            }
+            texte.append('\n');
+        }
+
+        texte.append("\nMises non remportées: ").append(this.getMisesNonRemportees()).append(" €\n");
+        return texte.toString();
+    }
+
+    /**
+     * Retourne le résultat au format JSON, sur une ligne.
+     * @return Le résultat JSON.
+     */
+    public String toJson () {
+        StringBuilder json = new StringBuilder();
+
+        json.append("{\"date\":");
+        if ( this.date != null ) {
+            json.append('"').append(this.date).append('"');
+        } else {
+            json.append("null");
+        }
+        json.append(",\"graine\":").append(this.graine);
+        json.append(",\"gagnante\":{\"numeros\":");
+        tableauJson(json, this.gagnante.getNumeros());
+        json.append(",\"numerosChance\":");
+        tableauJson(json, this.gagnante.getNumerosChance());
+        json.append("},\"bulletins\":").append(this.getNbBulletins());
+        json.append(",\"grilles\":").append(this.getNbGrilles());
+        json.append(",\"totalMises\":").append(this.getTotalMises());
+        json.append(",\"gagnantsParRang\":[");
+        long gagnants[] = this.getGagnantsParRang();
+        BigDecimal mises[] = this.getMisesParRang(), gains[] = this.getGainsParCombinaison();
+        byte b;
+        for ( b = 0; b < gagnants.length; b++ ) {
+            json.append(b > 0 ? "," : "").append(gagnants[b]);
+        }
+        json.append("],\"misesParRang\":[");
+        for ( b = 0; b < mises.length; b++ ) {
+            json.append(b > 0 ? "," : "").append(mises[b]);
+        }
+        json.append("],\"gainsParCombinaison\":[");
+        for ( b = 0; b < gains.length; b++ ) {
+            json.append(b > 0 ? "," : "").append(gains[b]);
+        }
+        json.append("],\"misesNonRemportees\":").append(this.getMisesNonRemportees());
+        json.append(",\"dureeNs\":").append(this.dureeNs);
+        if ( this.metriques != null ) {
+            json.append(",\"metriques\":").append(this.metriques.toJson());
+        }
+        json.append('}');
+        return json.toString();
+    }
+
+    /** Ajoute un tableau de numéros au format JSON. */
+    private static void tableauJson ( StringBuilder json, byte numeros[] ) {
+        byte i;
+
+        json.append('[');
+        for ( i = 0; i < numeros.length; i++ ) {
+            json.append(i > 0 ? "," : "").append(numeros[i]);
+        }
+        json.append(']');
+    }
+
+}
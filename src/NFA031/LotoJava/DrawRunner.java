@@ -0,0 +1,163 @@
+package NFA031.LotoJava;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Exécution d'un tirage complet sans entrée/sortie console: grille gagnante,
+ * génération et comptage des bulletins, résultat structuré (DrawResult).
+ * La graine fixe la grille gagnante et les bulletins: deux exécutions de même
+ * graine et même nombre de bulletins donnent le même résultat, quel que soit le
+ * nombre de threads. Plusieurs tirages peuvent s'enchaîner dans la même JVM.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class DrawRunner {
+
+    // Graine du tirage
+    private final long graine;
+    // Grille gagnante, tirée dès la construction
+    private final Grille gagnante;
+    // Graine du moteur de génération des bulletins
+    private final long graineMoteur;
+    // Date du tirage (facultative)
+    private String date = null;
+    // Identifiant du premier bulletin
+    private long premierId = 1L;
+    // Nombre de threads (0: pool commun)
+    private int nbThreads = 0;
+    // Destination des bulletins générés (null: aucune)
+    private Consumer<Bulletin> sortie = null;
+    // Métriques d'exécution (null: non mesurées)
+    private DrawMetrics metriques = null;
+    // Demande d'annulation (null: tirage non annulable)
+    private BooleanSupplier annulation = null;
+
+    /** Constructeur: tirage de graine aléatoire. */
+    public DrawRunner () {
+        this( new SplittableRandomSource().nextLong() );
+    }
+
+    /**
+     * Constructeur: tirage reproductible.
+     * @param graine La graine du tirage.
+     */
+    public DrawRunner ( long graine ) {
+        RandomSource source = new SplittableRandomSource(graine);
+
+        this.graine = graine;
+        this.gagnante = new Grille(Grille.NB_NUMEROS_MIN, Grille.CHANCE_NB_NUMEROS_MIN, source);
+        this.graineMoteur = source.nextLong();
+    }
+
+    /**
+     * Retourne la graine du tirage.
+     * @return La graine.
+     */
+    public long getGraine() {
+        return this.graine;
+    }
+
+    /**
+     * Retourne la grille gagnante du tirage (connue avant son exécution).
+     * @return La grille gagnante.
+     */
+    public Grille getGagnante() {
+        return this.gagnante;
+    }
+
+    /**
+     * Définit la date du tirage.
+     * @param date La date au format "dd-mm-yyyy" ou "dd-mm-yy" (null pour aucune).
+     * @throws IllegalArgumentException Si la date n'est pas valide.
+     */
+    public void setDate ( String date ) {
+        if ( date != null && !Loto.isDateValide(date) ) {
+            throw new IllegalArgumentException("La date fournie (" + date + ") n'est pas valide.");
+        }
+        this.date = date;
+    }
+
+    /**
+     * Définit l'identifiant du premier bulletin.
+     * @param premierId L'identifiant du premier bulletin.
+     */
+    public void setPremierId ( long premierId ) {
+        this.premierId = premierId;
+    }
+
+    /**
+     * Définit le nombre de threads de génération.
+     * @param nbThreads Le nombre de threads (0 pour le pool commun).
+     * @throws IllegalArgumentException Si le nombre est négatif.
+     */
+    public void setNbThreads ( int nbThreads ) {
+        if ( nbThreads < 0 ) {
+            throw new IllegalArgumentException("Le nombre de threads (" + nbThreads + ") est négatif.");
+        }
+        this.nbThreads = nbThreads;
+    }
+
+    /**
+     * Définit la destination des bulletins générés. Avec une sortie, les bulletins
+     * sont générés dans le thread courant et transmis dans l'ordre des identifiants:
+     * le nombre de threads (setNbThreads) est alors sans effet.
+     * @param sortie La destination des bulletins (null pour aucune).
+     */
+    public void setSortie ( Consumer<Bulletin> sortie ) {
+        this.sortie = sortie;
+    }
+
+    /**
+     * Active (ou désactive avec null) la mesure des métriques d'exécution.
+     * @param metriques Les métriques à alimenter.
+     */
+    public void setMetriques ( DrawMetrics metriques ) {
+        this.metriques = metriques;
+    }
+
+    /**
+     * Rend le tirage annulable (voir DrawEngine.setAnnulation()).
+     * @param annulation La condition d'annulation (null pour un tirage non annulable).
+     */
+    public void setAnnulation ( BooleanSupplier annulation ) {
+        this.annulation = annulation;
+    }
+
+    /**
+     * Exécute le tirage.
+     * @param nbBulletins Le nombre de bulletins à générer.
+     * @return Le résultat du tirage.
+     * @throws IllegalArgumentException Si le nombre de bulletins est négatif.
+     * @throws CancellationException Si le tirage est annulé.
+     */
+    public DrawResult executer ( long nbBulletins ) {
+        ForkJoinPool pool;
+        DrawEngine moteur;
+        DrawTotals totaux;
+        long debut = System.nanoTime();
+
+        if ( nbBulletins < 0 ) {
+            throw new IllegalArgumentException("Le nombre de bulletins (" + nbBulletins + ") est négatif.");
+        }
+        pool = this.nbThreads > 0 ? new ForkJoinPool(this.nbThreads) : ForkJoinPool.commonPool();
+        try {
+            moteur = new DrawEngine(this.graineMoteur, SplittableRandomSource::new, pool);
+            moteur.setMetriques(this.metriques);
+            moteur.setAnnulation(this.annulation);
+            if ( this.sortie != null ) {
+                totaux = moteur.executerSequentiel(this.premierId, nbBulletins, this.gagnante, this.sortie);
+            } else {
+                totaux = moteur.executer(this.premierId, nbBulletins, this.gagnante);
+            }
+        } finally {
+            if ( pool != ForkJoinPool.commonPool() ) {
+                pool.shutdown();
+            }
+        }
+        return new DrawResult(this.date, this.graine, this.gagnante, totaux, System.nanoTime() - debut,
+                this.metriques);
+    }
+
+}
@@ -0,0 +1,309 @@
+package NFA031.LotoJava;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Serveur de tirages: exécute des tirages demandés par des clients locaux, dans
+ * une seule JVM (code déjà compilé, tables précalculées partagées).
+ * Le serveur n'écoute que sur l'adresse de bouclage. Le protocole est textuel,
+ * une ligne par commande:
+ * <ul>
+ * <li>une ligne d'options (comme en ligne de commande, voir DrawOptions.USAGE,
+ * par exemple "-n 100000 -d 01-01-2024 -s 42 -f json") lance un tirage;</li>
+ * <li>ANNULER annule le tirage en cours de la connexion.</li>
+ * </ul>
+ * Chaque réponse se termine par une ligne FIN: rapport du tirage (texte ou JSON),
+ * ou ligne "ERREUR message", ou ligne ANNULE. La fin des commandes (connexion ou
+ * flux d'entrée fermé par le client) annule le tirage en cours: le client garde la
+ * connexion ouverte jusqu'à la ligne FIN. Une connexion exécute un tirage à la
+ * fois; plusieurs connexions s'exécutent en parallèle, dans la limite d'un nombre
+ * de tirages simultanés au-delà duquel les demandes attendent leur tour.
+ * Chaque connexion et chaque tirage ont leur thread: virtuel si la JVM en dispose
+ * (Java 21 et plus), sinon pris dans un pool de threads classiques. Les tirages se
+ * partagent le pool fork/join commun: l'option --threads n'existe pas dans une demande.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class DrawServer implements Closeable {
+
+    /** Nombre de tirages simultanés par défaut. */
+    public final static int NB_TIRAGES_DEFAUT = Runtime.getRuntime().availableProcessors();
+    /** Ligne de fin d'une réponse. */
+    public final static String FIN = "FIN";
+    /** Commande d'annulation du tirage en cours. */
+    public final static String ANNULER = "ANNULER";
+    /** Réponse à un tirage annulé. */
+    public final static String ANNULE = "ANNULE";
+    /** Préfixe d'une réponse d'erreur. */
+    public final static String ERREUR = "ERREUR";
+
+    // Socket d'écoute
+    private final ServerSocket socket;
+    // Threads des connexions et des tirages
+    private final ExecutorService executeur;
+    // Places de tirages simultanés (les demandes au-delà attendent)
+    private final Semaphore places;
+    // Connexions ouvertes (fermées par close())
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+    // Faux après close()
+    private volatile boolean actif = true;
+
+    /**
+     * Constructeur: ouvre le port d'écoute sur l'adresse de bouclage.
+     * @param port Le port d'écoute (0 pour un port libre, voir getPort()).
+     * @param nbTiragesMax Le nombre maximum de tirages simultanés.
+     * @throws IOException Si le port ne peut pas être ouvert.
+     * @throws IllegalArgumentException Si le nombre de tirages est inférieur à 1.
+     */
+    public DrawServer ( int port, int nbTiragesMax ) throws IOException {
+        if ( nbTiragesMax < 1 ) {
+            throw new IllegalArgumentException("Le nombre de tirages simultanés (" + nbTiragesMax + ") "
+                    + "est inférieur au minimum (1).");
+        }
+        this.places = new Semaphore(nbTiragesMax, true);
+        this.socket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        this.executeur = creerExecuteur();
+    }
+
+    /**
+     * Crée l'exécuteur des connexions et des tirages: un thread virtuel par tâche
+     * si la JVM en dispose, un pool de threads classiques sinon.
+     * @return L'exécuteur.
+     */
+    private static ExecutorService creerExecuteur () {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch ( ReflectiveOperationException e ) {
+            // Pas de threads virtuels (Java 17 à 20)
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Retourne le port d'écoute du serveur.
+     * @return Le port.
+     */
+    public int getPort() {
+        return this.socket.getLocalPort();
+    }
+
+    /**
+     * Exécute un petit tirage pour charger les classes, remplir les tables
+     * précalculées et compiler le code avant la première demande.
+     */
+    public void prechauffer () {
+        new DrawRunner(0L).executer(DrawEngine.TAILLE_BLOC);
+    }
+
+    /**
+     * Accepte les connexions jusqu'à l'arrêt du serveur (bloquant).
+     * @throws IOException Si l'écoute échoue alors que le serveur est actif.
+     */
+    public void servir () throws IOException {
+        Socket client;
+
+        while ( this.actif ) {
+            try {
+                client = this.socket.accept();
+            } catch ( IOException e ) {
+                if ( !this.actif ) {
+                    break;  // Socket fermée par close()
+                }
+                throw e;
+            }
+            this.clients.add(client);
+            this.executeur.execute(new Connexion(client));
+        }
+    }
+
+    /** Arrête le serveur: plus de connexion acceptée, connexions fermées et tirages en cours annulés. */
+    @Override
+    public void close () throws IOException {
+        this.actif = false;
+        try {
+            this.socket.close();
+        } finally {
+            for ( Socket client : this.clients ) {
+                try {
+                    client.close();
+                } catch ( IOException e ) {
+                    // Connexion déjà perdue
+                }
+            }
+            this.executeur.shutdownNow();
+        }
+    }
+
+    /**
+     * Envoie une réponse au client, suivie de la ligne de fin
+     * (sans effet si le client n'est plus joignable).
+     */
+    private static void repondre ( Writer sortie, String reponse ) {
+        synchronized ( sortie ) {
+            try {
+                sortie.write(reponse);
+                if ( !reponse.endsWith("\n") ) {
+                    sortie.write('\n');
+                }
+                sortie.write(FIN + "\n");
+                sortie.flush();
+            } catch ( IOException e ) {
+                // Client parti: la réponse est perdue
+            }
+        }
+    }
+
+    /** Lecture des commandes d'une connexion. */
+    private class Connexion implements Runnable {
+
+        private final Socket client;
+
+        Connexion ( Socket client ) {
+            this.client = client;
+        }
+
+        @Override
+        public void run () {
+            Future<?> tirage = null;
+            AtomicBoolean annulation = null;
+            DrawOptions options;
+            String ligne;
+
+            try ( Socket client = this.client;
+                  BufferedReader entree = new BufferedReader(
+                          new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+                  Writer sortie = new BufferedWriter(
+                          new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8)) ) {
+                while ( (ligne = entree.readLine()) != null ) {
+                    ligne = ligne.trim();
+                    if ( ligne.isEmpty() ) {
+                        continue;
+                    }
+                    if ( ligne.equalsIgnoreCase(ANNULER) ) {
+                        if ( annulation != null ) {
+                            annulation.set(true);
+                        }
+                    } else if ( tirage != null && !tirage.isDone() && !annulation.get() ) {
+                        repondre(sortie, ERREUR + " Un tirage est déjà en cours sur cette connexion.");
+                    } else if ( (options = lireDemande(ligne, sortie)) != null ) {
+                        if ( tirage != null ) {
+                            tirage.get();   // Fin du tirage précédent (annulé)
+                        }
+                        annulation = new AtomicBoolean(false);
+                        tirage = DrawServer.this.executeur.submit(new Tirage(options, annulation, sortie));
+                    }
+                }
+                // Fin des commandes: le tirage en cours est annulé (finally), sa place libérée
+            } catch ( IOException | ExecutionException e ) {
+                // Connexion perdue: rien à répondre
+            } catch ( InterruptedException e ) {
+                // Arrêt du serveur
+            } finally {
+                if ( annulation != null ) {
+                    annulation.set(true);
+                }
+                DrawServer.this.clients.remove(this.client);
+            }
+        }
+    }
+
+    /**
+     * Lit les options d'une demande de tirage. L'aide et les options invalides
+     * reçoivent leur réponse immédiatement.
+     * @return Les options du tirage à exécuter, ou null si aucun tirage n'est à exécuter.
+     */
+    private static DrawOptions lireDemande ( String ligne, Writer sortie ) {
+        DrawOptions options;
+
+        try {
+            options = DrawOptions.lire(ligne.split("\\s+"));
+            if ( options.isVerbeux() || options.getNbTirages() > 0 || options.getArchive() != null
+                    || options.getPortServeur() >= 0 || options.getNbThreads() > 0 ) {
+                throw new IllegalArgumentException("Les options --verbeux, --tirages, --archive, --serveur "
+                        + "et --threads n'existent pas dans une demande au serveur.");
+            }
+        } catch ( IllegalArgumentException e ) {
+            repondre(sortie, ERREUR + " " + e.getMessage());
+            return null;
+        }
+        if ( options.isAide() ) {
+            repondre(sortie, DrawOptions.USAGE);
+            return null;
+        }
+        return options;
+    }
+
+    /** Exécution d'un tirage demandé par un client. */
+    private class Tirage implements Runnable {
+
+        private final DrawOptions options;
+        private final AtomicBoolean annulation;
+        private final Writer sortie;
+
+        Tirage ( DrawOptions options, AtomicBoolean annulation, Writer sortie ) {
+            this.options = options;
+            this.annulation = annulation;
+            this.sortie = sortie;
+        }
+
+        @Override
+        public void run () {
+            DrawOptions options = this.options;
+            DrawRunner tirage;
+            DrawResult resultat;
+
+            try {
+                // Attente d'une place, toujours annulable
+                while ( !DrawServer.this.places.tryAcquire(100, TimeUnit.MILLISECONDS) ) {
+                    if ( this.annulation.get() ) {
+                        repondre(this.sortie, ANNULE);
+                        return;
+                    }
+                }
+            } catch ( InterruptedException e ) {
+                repondre(this.sortie, ANNULE);
+                return;
+            }
+            try {
+                tirage = options.getGraine() != null ? new DrawRunner(options.getGraine()) : new DrawRunner();
+                tirage.setDate(options.getDate());
+                tirage.setAnnulation(this.annulation::get);
+                if ( options.isMetriques() ) {
+                    tirage.setMetriques(new DrawMetrics());
+                }
+                resultat = tirage.executer(options.getNbBulletins());
+                if ( options.getFormat().equals(DrawOptions.FORMAT_JSON) ) {
+                    repondre(this.sortie, resultat.toJson());
+                } else {
+                    repondre(this.sortie, resultat.toString());
+                }
+            } catch ( CancellationException e ) {
+                repondre(this.sortie, ANNULE);
+            } catch ( RuntimeException e ) {
+                repondre(this.sortie, ERREUR + " " + e);
+            } finally {
+                DrawServer.this.places.release();
+            }
+        }
+    }
+
+}
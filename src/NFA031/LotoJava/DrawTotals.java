@@ -0,0 +1,236 @@
+package NFA031.LotoJava;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Totaux d'un tirage (ou d'une partie d'un tirage): bulletins, grilles,
+ * mises et nombre de grilles gagnantes par rang.
+ * Les compteurs sont des entiers 64 bits contrôlés (ArithmeticException en cas
+ * de dépassement), les mises sont comptées en euros entiers: les montants
+ * décimaux ne sont calculés, exactement, qu'au moment de la répartition des gains.
+ * Les totaux partiels calculés séparément peuvent être fusionnés.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class DrawTotals {
+
+    /** Nombre de décimales des montants (centimes). */
+    public final static int DECIMALES = 2;
+    /** Arrondi des montants, au centime le plus proche (demi vers le haut). */
+    public final static RoundingMode ARRONDI = RoundingMode.HALF_UP;
+
+    // Nombre de bulletins comptés
+    private long nbBulletins = 0L;
+    // Nombre de grilles comptées
+    private long nbGrilles = 0L;
+    // Total des sommes misées
+    private long totalMises = 0L;
+    // Totaux des nombres de combinaisons gagnantes par rang
+    private long gagnantsParRang[] = new long[Loto.PARTS_MISES.length];
+
+    /** Constructeur: totaux à zéro. */
+    public DrawTotals () {
+    }
+
+    /**
+     * Constructeur: totaux aux valeurs données (relevé d'un DrawLedger).
+     * @param nbBulletins Le nombre de bulletins.
+     * @param nbGrilles Le nombre de grilles.
+     * @param totalMises Le total des mises en euros.
+     * @param gagnantsParRang Les nombres de gagnants par rang (conservé sans copie).
+     */
+    DrawTotals ( long nbBulletins, long nbGrilles, long totalMises, long gagnantsParRang[] ) {
+        this.nbBulletins = nbBulletins;
+        this.nbGrilles = nbGrilles;
+        this.totalMises = totalMises;
+        this.gagnantsParRang = gagnantsParRang;
+    }
+
+    /**
+     * Compte un bulletin dont les grilles ont déjà été comparées à la grille gagnante.
+     * Chaque grille multiple est comptée pour toutes ses combinaisons simples gagnantes.
+     * @param bulletin Le bulletin à compter.
+     * @throws ArithmeticException Si un total dépasse la capacité d'un long.
+     */
+    public void ajouterBulletin ( Bulletin bulletin ) {
+        byte b, nb = bulletin.getNombreGrilles();
+        int index;
+
+        this.nbBulletins = Math.addExact(this.nbBulletins, 1L);
+        this.totalMises = Math.addExact(this.totalMises, bulletin.getTotalMises());
+        this.nbGrilles = Math.addExact(this.nbGrilles, nb);
+        for ( b = 0; b < nb; b++ ) {
+            index = bulletin.getGrille(b).getIndexRepartition();
+            if ( index >= 0 ) {
+                TableRangs.ajouterLigne(index, this.gagnantsParRang);
+            }
+        }
+    }
+
+    /**
+     * Compte une grille à partir de ses masques, sans objet Grille.
+     * Le nombre de bulletins n'est pas modifié (voir ajouterNbBulletins()).
+     * @param masqueNumeros Le masque des numéros cochés.
+     * @param masqueNumerosChance Le masque des numéros chance cochés.
+     * @param gagnante La grille gagnante du tirage.
+     * @throws ArithmeticException Si un total dépasse la capacité d'un long.
+     */
+    public void ajouterGrille ( long masqueNumeros, short masqueNumerosChance, Grille gagnante ) {
+        byte nbNumeros = (byte) Long.bitCount(masqueNumeros);
+        byte nbNumerosChance = (byte) Integer.bitCount(masqueNumerosChance & 0xFFFF);
+
+        this.nbGrilles = Math.addExact(this.nbGrilles, 1L);
+        this.totalMises = Math.addExact(this.totalMises, Grille.getMise(nbNumeros, nbNumerosChance));
+        TableRangs.ajouterLigne(TableRangs.index(masqueNumeros, masqueNumerosChance, gagnante), this.gagnantsParRang);
+    }
+
+    /**
+     * Compte plusieurs grilles identiques à partir de leurs masques, en une fois.
+     * Le nombre de bulletins n'est pas modifié (voir ajouterNbBulletins()).
+     * @param masqueNumeros Le masque des numéros cochés.
+     * @param masqueNumerosChance Le masque des numéros chance cochés.
+     * @param gagnante La grille gagnante du tirage.
+     * @param nb Le nombre de grilles identiques.
+     * @throws ArithmeticException Si un total dépasse la capacité d'un long.
+     */
+    public void ajouterGrilles ( long masqueNumeros, short masqueNumerosChance, Grille gagnante, long nb ) {
+        byte nbNumeros = (byte) Long.bitCount(masqueNumeros);
+        byte nbNumerosChance = (byte) Integer.bitCount(masqueNumerosChance & 0xFFFF);
+
+        this.nbGrilles = Math.addExact(this.nbGrilles, nb);
+        this.totalMises = Math.addExact(this.totalMises,
+                Math.multiplyExact(nb, (long) Grille.getMise(nbNumeros, nbNumerosChance)));
+        TableRangs.ajouterLigne(TableRangs.index(masqueNumeros, masqueNumerosChance, gagnante),
+                this.gagnantsParRang, nb);
+    }
+
+    /**
+     * Ajoute des bulletins au compte, pour des grilles comptées une à une.
+     * @param nb Le nombre de bulletins à ajouter.
+     * @throws ArithmeticException Si le total dépasse la capacité d'un long.
+     */
+    public void ajouterNbBulletins ( long nb ) {
+        this.nbBulletins = Math.addExact(this.nbBulletins, nb);
+    }
+
+    /**
+     * Compte une grille gagnante dans son ou ses rangs.
+     * @param rang Le rang de gain de la grille (0 si perdante).
+     * @throws ArithmeticException Si un total dépasse la capacité d'un long.
+     */
+    public void ajouterRang ( byte rang ) {
+        TableRangs.ajouterRang(this.gagnantsParRang, 0, rang, 1L);
+    }
+
+    /**
+     * Ajoute des totaux partiels à ces totaux.
+     * @param autres Les totaux à ajouter.
+     * @throws ArithmeticException Si un total dépasse la capacité d'un long.
+     */
+    public void fusionner ( DrawTotals autres ) {
+        byte b;
+
+        this.nbBulletins = Math.addExact(this.nbBulletins, autres.nbBulletins);
+        this.nbGrilles = Math.addExact(this.nbGrilles, autres.nbGrilles);
+        this.totalMises = Math.addExact(this.totalMises, autres.totalMises);
+        for ( b = 0; b < this.gagnantsParRang.length; b++ ) {
+            this.gagnantsParRang[b] = Math.addExact(this.gagnantsParRang[b], autres.gagnantsParRang[b]);
+        }
+    }
+
+    /**
+     * Retourne le nombre de bulletins comptés.
+     * @return Le nombre de bulletins.
+     */
+    public long getNbBulletins() {
+        return this.nbBulletins;
+    }
+
+    /**
+     * Retourne le nombre de grilles comptées.
+     * @return Le nombre de grilles.
+     */
+    public long getNbGrilles() {
+        return this.nbGrilles;
+    }
+
+    /**
+     * Retourne le total des sommes misées.
+     * @return Le total des mises en euros.
+     */
+    public long getTotalMises() {
+        return this.totalMises;
+    }
+
+    /**
+     * Retourne le nombre de combinaisons gagnantes par rang (index 0 pour le rang 1).
+     * @return Le tableau des nombres de gagnants par rang.
+     */
+    public long[] getGagnantsParRang() {
+        return this.gagnantsParRang.clone();
+    }
+
+    /**
+     * Calcule exactement la part des mises revenant à chaque rang, arrondie au centime.
+     * @return Le tableau des sommes par rang, en euros (index 0 pour le rang 1).
+     */
+    public BigDecimal[] getMisesParRangExactes() {
+        BigDecimal misesParRang[] = new BigDecimal[Loto.PARTS_MISES.length];
+        BigDecimal total = BigDecimal.valueOf(this.totalMises);
+        byte b;
+
+        for ( b = 0; b < misesParRang.length; b++ ) {
+            misesParRang[b] = total.multiply(Loto.PARTS_MISES_EXACTES[b]).setScale(DECIMALES, ARRONDI);
+        }
+        return misesParRang;
+    }
+
+    /**
+     * Calcule la part des mises revenant à chaque rang, arrondie au centime.
+     * @return Le tableau des sommes par rang (index 0 pour le rang 1).
+     */
+    public double[] getMisesParRang() {
+        BigDecimal exactes[] = this.getMisesParRangExactes();
+        double misesParRang[] = new double[exactes.length];
+        byte b;
+
+        for ( b = 0; b < exactes.length; b++ ) {
+            misesParRang[b] = exactes[b].doubleValue();
+        }
+        return misesParRang;
+    }
+
+    /**
+     * Calcule le gain de chaque combinaison gagnante, par rang, arrondi au centime.
+     * @return Le tableau des gains par rang, en euros (0 pour un rang sans gagnant).
+     */
+    public BigDecimal[] getGainsParCombinaison() {
+        BigDecimal gains[] = this.getMisesParRangExactes();
+        byte b;
+
+        for ( b = 0; b < gains.length; b++ ) {
+            gains[b] = this.gagnantsParRang[b] > 0
+                    ? gains[b].divide(BigDecimal.valueOf(this.gagnantsParRang[b]), DECIMALES, ARRONDI)
+                    : BigDecimal.ZERO.setScale(DECIMALES);
+        }
+        return gains;
+    }
+
+    /**
+     * Calcule la somme misée mais non gagnée (parts des rangs sans gagnant).
+     * @return La somme remise en jeu, en euros.
+     */
+    public BigDecimal getMisesNonRemportees() {
+        BigDecimal misesParRang[] = this.getMisesParRangExactes();
+        BigDecimal remisEnJeu = BigDecimal.valueOf(this.totalMises).setScale(DECIMALES);
+        byte b;
+
+        for ( b = 0; b < misesParRang.length; b++ ) {
+            if ( this.gagnantsParRang[b] > 0 ) {
+                remisEnJeu = remisEnJeu.subtract(misesParRang[b]);
+            }
+        }
+        return remisEnJeu;
+    }
+
+}
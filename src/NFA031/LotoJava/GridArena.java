@@ -0,0 +1,257 @@
+package NFA031.LotoJava;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Stockage des grilles hors du tas Java, pour des tirages de plusieurs centaines
+ * de millions de grilles: le tas n'en porte que les références des segments.
+ * Les grilles sont rangées par segments de taille fixe, dans des tampons directs,
+ * ou projetés depuis un fichier. Chaque grille occupe un enregistrement de 16 octets
+ * au format des archives (voir ArchiveFormat).
+ * Projeté depuis un fichier, le stockage n'est limité que par l'espace disque; le
+ * fichier, une fois le stockage fermé, est une archive de tirage lisible par
+ * ArchiveReader. En tampons directs, il est limité par la mémoire directe de la
+ * JVM (option -XX:MaxDirectMemorySize) et disparaît avec le stockage.
+ * Un seul thread à la fois peut y ajouter des grilles.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class GridArena implements Consumer<Bulletin>, Closeable {
+
+    /** Nombre de grilles par segment (64 Mo). */
+    public final static int GRILLES_PAR_SEGMENT = (1 << 26) / ArchiveFormat.TAILLE_GRILLE;
+
+    // Taille d'un segment, en octets
+    private final static long TAILLE_SEGMENT = (long) GRILLES_PAR_SEGMENT * ArchiveFormat.TAILLE_GRILLE;
+
+    // Fichier projeté (null pour des tampons directs)
+    private final FileChannel canal;
+    // Segments des enregistrements (les nbSegments premiers sont utilisés)
+    private ByteBuffer segments[] = new ByteBuffer[16];
+    // Nombre de segments alloués
+    private int nbSegments = 0;
+    // Nombre de grilles rangées
+    private long nbGrilles = 0L;
+
+    /** Constructeur: stockage en tampons directs. */
+    public GridArena () {
+        this.canal = null;
+    }
+
+    /**
+     * Constructeur: stockage projeté depuis un fichier, créé (ou remplacé) avec l'en-tête d'archive.
+     * @param fichier Le chemin du fichier.
+     * @param dateTirage La date du tirage (null si aucune).
+     * @param graine La graine du tirage.
+     * @throws IOException Si le fichier ne peut pas être créé.
+     */
+    public GridArena ( Path fichier, DateTirage dateTirage, long graine ) throws IOException {
+        ByteBuffer enTete = ByteBuffer.allocate(ArchiveFormat.TAILLE_EN_TETE).order(ArchiveFormat.ORDRE);
+
+        this.canal = FileChannel.open(fichier, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            enTete.putInt(ArchiveFormat.SIGNATURE)
+                    .putShort(ArchiveFormat.VERSION)
+                    .putShort(Loto.VERSION_REGLES)
+                    .putInt(dateTirage != null ? dateTirage.getValeur() : 0)
+                    .putInt(0)
+                    .putLong(graine)
+                    .putLong(0L)    // Nombre de grilles, reporté à la fermeture
+                    .flip();
+            while ( enTete.hasRemaining() ) {
+                this.canal.write(enTete);
+            }
+        } catch ( IOException | RuntimeException e ) {
+            this.canal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Range toutes les grilles d'un bulletin.
+     * @param bulletin Le bulletin.
+     * @throws UncheckedIOException Si le fichier ne peut pas être agrandi.
+     */
+    @Override
+    public void accept ( Bulletin bulletin ) {
+        Grille grille;
+        byte i;
+
+        for ( i = 0; i < bulletin.getNombreGrilles(); i++ ) {
+            grille = bulletin.getGrille(i);
+            this.ajouterGrille(bulletin.getId(), grille.getMasqueNumeros(), grille.getMasqueNumerosChance());
+        }
+    }
+
+    /**
+     * Range une grille.
+     * @param idBulletin L'identifiant du bulletin de la grille.
+     * @param masqueNumeros Le masque des numéros cochés.
+     * @param masqueNumerosChance Le masque des numéros chance cochés.
+     * @throws IllegalArgumentException Si les masques ne décrivent pas une grille valide,
+     * ou si l'identifiant n'est pas enregistrable.
+     * @throws UncheckedIOException Si le fichier ne peut pas être agrandi.
+     */
+    public void ajouterGrille ( long idBulletin, long masqueNumeros, short masqueNumerosChance ) {
+        int position = (int) (this.nbGrilles % GRILLES_PAR_SEGMENT) * ArchiveFormat.TAILLE_GRILLE;
+        long regroupe = ArchiveFormat.regrouper(idBulletin, masqueNumerosChance);
+        ByteBuffer segment;
+
+        if ( !ArchiveFormat.estValide(masqueNumeros, masqueNumerosChance) ) {
+            throw new IllegalArgumentException("La grille fournie n'est pas valide (numéros 0x"
+                    + Long.toHexString(masqueNumeros) + ", numéros chance 0x"
+                    + Integer.toHexString(masqueNumerosChance & 0xFFFF) + ").");
+        }
+        if ( position == 0 ) {
+            this.ajouterSegment();
+        }
+        segment = this.segments[this.nbSegments - 1];
+        segment.putLong(position, masqueNumeros);
+        segment.putLong(position + 8, regroupe);
+        this.nbGrilles++;
+    }
+
+    /** Alloue (ou projette) le segment suivant. */
+    private void ajouterSegment () {
+        ByteBuffer segment;
+
+        if ( this.canal == null ) {
+            segment = ByteBuffer.allocateDirect((int) TAILLE_SEGMENT);
+        } else {
+            try {
+                segment = this.canal.map(FileChannel.MapMode.READ_WRITE,
+                        ArchiveFormat.TAILLE_EN_TETE + this.nbSegments * TAILLE_SEGMENT, TAILLE_SEGMENT);
+            } catch ( IOException e ) {
+                throw new UncheckedIOException("Agrandissement du fichier des grilles impossible.", e);
+            }
+        }
+        if ( this.nbSegments == this.segments.length ) {
+            this.segments = Arrays.copyOf(this.segments, this.segments.length * 2);
+        }
+        this.segments[this.nbSegments++] = segment.order(ArchiveFormat.ORDRE);
+    }
+
+    /**
+     * Retourne le nombre de grilles rangées.
+     * @return Le nombre de grilles.
+     */
+    public long getNbGrilles() {
+        return this.nbGrilles;
+    }
+
+    /**
+     * Retourne le masque des numéros cochés d'une grille.
+     * @param grille L'index de la grille.
+     * @return Le masque des numéros cochés.
+     */
+    public long getMasqueNumeros( long grille ) {
+        this.verifierGrille(grille);
+        return this.segments[(int) (grille / GRILLES_PAR_SEGMENT)]
+                .getLong((int) (grille % GRILLES_PAR_SEGMENT) * ArchiveFormat.TAILLE_GRILLE);
+    }
+
+    /**
+     * Retourne le masque des numéros chance cochés d'une grille.
+     * @param grille L'index de la grille.
+     * @return Le masque des numéros chance cochés.
+     */
+    public short getMasqueNumerosChance( long grille ) {
+        return ArchiveFormat.masqueNumerosChance(this.getRegroupe(grille));
+    }
+
+    /**
+     * Retourne l'identifiant du bulletin d'une grille.
+     * @param grille L'index de la grille.
+     * @return L'identifiant du bulletin.
+     */
+    public long getIdBulletin( long grille ) {
+        return ArchiveFormat.idBulletin(this.getRegroupe(grille));
+    }
+
+    /** Retourne l'identifiant et le masque des numéros chance regroupés d'une grille. */
+    private long getRegroupe ( long grille ) {
+        this.verifierGrille(grille);
+        return this.segments[(int) (grille / GRILLES_PAR_SEGMENT)]
+                .getLong((int) (grille % GRILLES_PAR_SEGMENT) * ArchiveFormat.TAILLE_GRILLE + 8);
+    }
+
+    /**
+     * Compte toutes les grilles rangées face à une grille gagnante, segment par segment.
+     * @param gagnante La grille gagnante.
+     * @return Les totaux du tirage.
+     */
+    public DrawTotals rescorer ( Grille gagnante ) {
+        DrawTotals totaux = new DrawTotals();
+        long idPrecedent = -1L;
+        int s;
+
+        try {
+            for ( s = 0; s < this.nbSegments; s++ ) {
+                idPrecedent = ArchiveFormat.compter(this.segments[s],
+                        (int) (Math.min(GRILLES_PAR_SEGMENT, this.nbGrilles - (long) s * GRILLES_PAR_SEGMENT)
+                                * ArchiveFormat.TAILLE_GRILLE),
+                        (long) s * GRILLES_PAR_SEGMENT, gagnante, totaux, idPrecedent);
+            }
+        } catch ( IOException e ) {
+            // Grilles vérifiées à l'ajout: impossible, sauf fichier projeté modifié par ailleurs
+            throw new UncheckedIOException(e);
+        }
+        return totaux;
+    }
+
+    /**
+     * Vérifie qu'un index de grille est valide.
+     * @throws IndexOutOfBoundsException Si l'index est hors limites.
+     */
+    private void verifierGrille ( long grille ) {
+        if ( grille < 0 || grille >= this.nbGrilles ) {
+            throw new IndexOutOfBoundsException("La grille demandée (" + grille + ") "
+                    + "est hors limites (de 0 à " + (this.nbGrilles - 1) + ").");
+        }
+    }
+
+    /**
+     * Ferme le stockage. Projeté depuis un fichier, les segments sont écrits sur le
+     * disque, le fichier est ramené à la taille des grilles rangées et le nombre de
+     * grilles est reporté dans l'en-tête. Les grilles ne sont plus accessibles ensuite.
+     * @throws IOException Si l'écriture échoue.
+     */
+    @Override
+    public void close () throws IOException {
+        ByteBuffer nombre;
+        int s;
+
+        if ( this.canal != null && this.canal.isOpen() ) {
+            try {
+                for ( s = 0; s < this.nbSegments; s++ ) {
+                    ((MappedByteBuffer) this.segments[s]).force();
+                }
+                try {
+                    this.canal.truncate(ArchiveFormat.TAILLE_EN_TETE + this.nbGrilles * ArchiveFormat.TAILLE_GRILLE);
+                } catch ( IOException e ) {
+                    // Fichier encore projeté (certains systèmes): l'archive reste valide, avec de la place en trop
+                }
+                nombre = ByteBuffer.allocate(8).order(ArchiveFormat.ORDRE).putLong(this.nbGrilles);
+                nombre.flip();
+                this.canal.write(nombre, ArchiveFormat.POSITION_NB_GRILLES);
+                this.canal.force(true);
+            } finally {
+                this.canal.close();
+            }
+        }
+        // Les segments seront libérés par le ramasse-miettes
+        Arrays.fill(this.segments, null);
+        this.nbSegments = 0;
+        this.nbGrilles = 0L;
+    }
+
+}
@@ -0,0 +1,393 @@
+package NFA031.LotoJava;
+
+/**
+ * Compteur des combinaisons jouées: nombre de grilles identiques par grille distincte.
+ * Chaque grille est réduite à une clé 64 bits (masque des numéros, bits 1 à 49,
+ * et masque des numéros chance décalé au-dessus, bits 51 à 60), rangée dans une
+ * table à adressage ouvert (sondage linéaire) de tableaux primitifs: compter une
+ * grille ne crée aucun objet.
+ * Le compteur donne les combinaisons les plus jouées, le nombre de joueurs
+ * partageant une combinaison gagnante, et les totaux d'un tirage calculés une
+ * seule fois par grille distincte, pondérés par son nombre de grilles.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class GridCounter {
+
+    /** Décalage du masque des numéros chance dans une clé. */
+    public final static int DECALAGE_CHANCE = Grille.NUMERO_MAX + 1;
+
+    // Clé vide (aucune grille n'a un masque nul)
+    private final static long VIDE = 0L;
+    // Taux de remplissage maximum de la table avant agrandissement
+    private final static double REMPLISSAGE_MAX = 0.5;
+    // Taille maximum de la table
+    private final static int TAILLE_MAX = 1 << 30;
+
+    // Clés des grilles distinctes (VIDE pour une case libre)
+    private long cles[];
+    // Nombre de grilles par clé
+    private long nombres[];
+    // Nombre de grilles distinctes
+    private int nbDistinctes = 0;
+    // Nombre de grilles comptées
+    private long nbGrilles = 0L;
+    // Nombre de bulletins comptés
+    private long nbBulletins = 0L;
+
+    /** Constructeur: compteur vide. */
+    public GridCounter () {
+        this( 1024 );
+    }
+
+    /**
+     * Constructeur: compteur vide prévu pour un nombre de grilles distinctes.
+     * @param capacite Le nombre de grilles distinctes attendues.
+     * @throws IllegalArgumentException Si la capacité est négative ou trop grande.
+     */
+    public GridCounter ( int capacite ) {
+        if ( capacite < 0 || capacite > 1 << 29 ) {
+            throw new IllegalArgumentException("La capacité demandée (" + capacite + ") "
+                    + "est hors limites (de 0 à " + (1 << 29) + ").");
+        }
+        this.allouer(Math.max(Integer.highestOneBit(Math.max(capacite, 8) - 1) << 2, 16));
+    }
+
+    /**
+     * Compte toutes les grilles d'un stockage.
+     * @param store Le stockage des bulletins.
+     * @return Le compteur.
+     */
+    public static GridCounter depuis ( BulletinStore store ) {
+        GridCounter compteur = new GridCounter(store.getNbGrilles());
+        int i;
+
+        for ( i = 0; i < store.getNbGrilles(); i++ ) {
+            compteur.ajouter(store.getMasqueNumeros(i), store.getMasqueNumerosChance(i));
+        }
+        compteur.nbBulletins = store.getNbBulletins();
+        return compteur;
+    }
+
+    /**
+     * Compte toutes les grilles d'une archive.
+     * @param archive L'archive du tirage.
+     * @return Le compteur.
+     * @throws java.io.UncheckedIOException Si un enregistrement de l'archive est corrompu.
+     */
+    public static GridCounter depuis ( ArchiveReader archive ) {
+        GridCounter compteur = new GridCounter();
+        long i, id, idPrecedent = -1L;
+
+        for ( i = 0; i < archive.getNbGrilles(); i++ ) {
+            compteur.ajouter(archive.getMasqueNumeros(i), archive.getMasqueNumerosChance(i));
+            // Les grilles d'un même bulletin se suivent
+            id = archive.getIdBulletin(i);
+            if ( id != idPrecedent ) {
+                idPrecedent = id;
+                compteur.nbBulletins++;
+            }
+        }
+        return compteur;
+    }
+
+    /**
+     * Retourne la clé d'une grille.
+     * @param masqueNumeros Le masque des numéros cochés.
+     * @param masqueNumerosChance Le masque des numéros chance cochés.
+     * @return La clé de la grille.
+     */
+    public static long cle ( long masqueNumeros, short masqueNumerosChance ) {
+        return masqueNumeros | ((masqueNumerosChance & 0xFFFFL) << DECALAGE_CHANCE);
+    }
+
+    /**
+     * Retourne le masque des numéros d'une clé.
+     * @param cle La clé de la grille.
+     * @return Le masque des numéros cochés.
+     */
+    public static long masqueNumeros ( long cle ) {
+        return cle & ((1L << DECALAGE_CHANCE) - 1);
+    }
+
+    /**
+     * Retourne le masque des numéros chance d'une clé.
+     * @param cle La clé de la grille.
+     * @return Le masque des numéros chance cochés.
+     */
+    public static short masqueNumerosChance ( long cle ) {
+        return (short) (cle >>> DECALAGE_CHANCE);
+    }
+
+    /**
+     * Compte une grille à partir de ses masques.
+     * @param masqueNumeros Le masque des numéros cochés.
+     * @param masqueNumerosChance Le masque des numéros chance cochés.
+     * @return Le nombre de grilles identiques comptées jusqu'ici, celle-ci comprise.
+     * @throws IllegalArgumentException Si le masque des numéros est vide.
+     * @throws IllegalStateException Si le compteur est plein.
+     */
+    public long ajouter ( long masqueNumeros, short masqueNumerosChance ) {
+        long cle = cle(masqueNumeros, masqueNumerosChance);
+        int i;
+
+        if ( masqueNumeros == 0L ) {
+            throw new IllegalArgumentException("Le masque des numéros fourni est vide.");
+        }
+        i = this.chercher(cle);
+        if ( this.cles[i] == VIDE ) {
+            // Nouvelle grille distincte: agrandissement de la table si elle est trop remplie
+            if ( this.nbDistinctes + 1 > this.cles.length * REMPLISSAGE_MAX ) {
+                if ( this.cles.length == TAILLE_MAX ) {
+                    throw new IllegalStateException("Le compteur ne peut pas contenir plus de "
+                            + this.nbDistinctes + " grilles distinctes.");
+                }
+                this.allouer(this.cles.length << 1);
+                i = this.chercher(cle);
+            }
+            this.cles[i] = cle;
+            this.nbDistinctes++;
+        }
+        this.nbGrilles++;
+        return ++this.nombres[i];
+    }
+
+    /**
+     * Compte une grille.
+     * @param grille La grille.
+     * @return Le nombre de grilles identiques comptées jusqu'ici, celle-ci comprise.
+     */
+    public long ajouter ( Grille grille ) {
+        return this.ajouter(grille.getMasqueNumeros(), grille.getMasqueNumerosChance());
+    }
+
+    /**
+     * Compte toutes les grilles d'un bulletin.
+     * @param bulletin Le bulletin.
+     */
+    public void ajouter ( Bulletin bulletin ) {
+        byte b;
+
+        for ( b = 0; b < bulletin.getNombreGrilles(); b++ ) {
+            this.ajouter(bulletin.getGrille(b));
+        }
+        this.nbBulletins++;
+    }
+
+    /**
+     * Retourne le nombre de grilles identiques à une grille.
+     * @param grille La grille.
+     * @return Le nombre de grilles comptées avec ces numéros et numéros chance (0 si aucune).
+     */
+    public long getNombre ( Grille grille ) {
+        int i = this.chercher(cle(grille.getMasqueNumeros(), grille.getMasqueNumerosChance()));
+        return this.nombres[i];
+    }
+
+    /**
+     * Retourne le nombre de grilles distinctes.
+     * @return Le nombre de combinaisons distinctes.
+     */
+    public int getNbDistinctes() {
+        return this.nbDistinctes;
+    }
+
+    /**
+     * Retourne le nombre de grilles comptées.
+     * @return Le nombre de grilles.
+     */
+    public long getNbGrilles() {
+        return this.nbGrilles;
+    }
+
+    /**
+     * Calcule les totaux d'un tirage une seule fois par grille distincte,
+     * chaque ligne de répartition étant multipliée par le nombre de grilles identiques.
+     * @param gagnante La grille gagnante du tirage.
+     * @return Les totaux du tirage (identiques à un comptage grille par grille).
+     * @throws ArithmeticException Si un total dépasse la capacité d'un long.
+     */
+    public DrawTotals compter ( Grille gagnante ) {
+        DrawTotals totaux = new DrawTotals();
+        int i;
+
+        for ( i = 0; i < this.cles.length; i++ ) {
+            if ( this.cles[i] != VIDE ) {
+                totaux.ajouterGrilles(masqueNumeros(this.cles[i]), masqueNumerosChance(this.cles[i]),
+                        gagnante, this.nombres[i]);
+            }
+        }
+        totaux.ajouterNbBulletins(this.nbBulletins);
+        return totaux;
+    }
+
+    /**
+     * Retourne les combinaisons les plus jouées.
+     * @param nb Le nombre de combinaisons voulues.
+     * @return Les combinaisons, de la plus jouée à la moins jouée (au plus nb).
+     */
+    public Combinaison[] getPlusJouees ( int nb ) {
+        return this.getPlusJouees(nb, null, 0);
+    }
+
+    /**
+     * Retourne les combinaisons gagnantes d'un rang, les plus partagées d'abord.
+     * @param gagnante La grille gagnante du tirage.
+     * @param rang Le rang de gain (de 1 à TableRangs.NB_RANGS).
+     * @param nb Le nombre de combinaisons voulues.
+     * @return Les combinaisons ayant au moins une combinaison simple gagnante à ce rang (au plus nb).
+     * @throws IndexOutOfBoundsException Si le rang est hors limites.
+     */
+    public Combinaison[] getGagnantes ( Grille gagnante, int rang, int nb ) {
+        if ( rang < 1 || rang > TableRangs.NB_RANGS ) {
+            throw new IndexOutOfBoundsException("Le rang demandé (" + rang + ") "
+                    + "est hors limites (de 1 à " + TableRangs.NB_RANGS + ").");
+        }
+        return this.getPlusJouees(nb, gagnante, rang);
+    }
+
+    /**
+     * Sélectionne les nb clés de plus grands nombres (tas minimum de nb cases),
+     * parmi toutes les clés, ou celles gagnant à un rang si une grille gagnante est fournie.
+     */
+    private Combinaison[] getPlusJouees ( int nb, Grille gagnante, int rang ) {
+        int tas[] = new int[Math.max(0, Math.min(nb, this.nbDistinctes))];
+        int taille = 0, i, j;
+        Combinaison combinaisons[];
+
+        for ( i = 0; i < this.cles.length && tas.length > 0; i++ ) {
+            if ( this.cles[i] == VIDE || (gagnante != null && !this.gagne(i, gagnante, rang)) ) {
+                continue;
+            }
+            if ( taille < tas.length ) {
+                tas[taille] = i;
+                this.remonter(tas, taille++);
+            } else if ( this.nombres[i] > this.nombres[tas[0]] ) {
+                tas[0] = i;
+                this.descendre(tas, taille);
+            }
+        }
+
+        // Vidage du tas: du plus petit au plus grand, rangés depuis la fin
+        combinaisons = new Combinaison[taille];
+        for ( j = taille - 1; j >= 0; j-- ) {
+            i = tas[0];
+            combinaisons[j] = new Combinaison(this.cles[i], this.nombres[i]);
+            tas[0] = tas[--taille];
+            this.descendre(tas, taille);
+        }
+        return combinaisons;
+    }
+
+    /** Indique si la grille d'une case gagne au moins une combinaison simple à un rang. */
+    private boolean gagne ( int i, Grille gagnante, int rang ) {
+        return TableRangs.getNbCombinaisons(TableRangs.index(masqueNumeros(this.cles[i]),
+                masqueNumerosChance(this.cles[i]), gagnante), rang) > 0;
+    }
+
+    /** Remonte le dernier élément ajouté au tas minimum. */
+    private void remonter ( int tas[], int k ) {
+        int parent, element = tas[k];
+
+        while ( k > 0 ) {
+            parent = (k - 1) >>> 1;
+            if ( this.nombres[tas[parent]] <= this.nombres[element] ) {
+                break;
+            }
+            tas[k] = tas[parent];
+            k = parent;
+        }
+        tas[k] = element;
+    }
+
+    /** Descend la racine du tas minimum à sa place. */
+    private void descendre ( int tas[], int taille ) {
+        int k = 0, fils, element;
+
+        if ( taille == 0 ) {
+            return;
+        }
+        element = tas[0];
+        while ( (fils = 2 * k + 1) < taille ) {
+            if ( fils + 1 < taille && this.nombres[tas[fils + 1]] < this.nombres[tas[fils]] ) {
+                fils++;
+            }
+            if ( this.nombres[element] <= this.nombres[tas[fils]] ) {
+                break;
+            }
+            tas[k] = tas[fils];
+            k = fils;
+        }
+        tas[k] = element;
+    }
+
+    /**
+     * Cherche la case d'une clé (sondage linéaire).
+     * @return La case de la clé, ou la case libre où la ranger.
+     */
+    private int chercher ( long cle ) {
+        int masque = this.cles.length - 1;
+        int i = melanger(cle) & masque;
+
+        while ( this.cles[i] != VIDE && this.cles[i] != cle ) {
+            i = (i + 1) & masque;
+        }
+        return i;
+    }
+
+    /** Mélange les bits d'une clé (finalisation de MurmurHash3) pour répartir les cases. */
+    private static int melanger ( long cle ) {
+        cle ^= cle >>> 33;
+        cle *= 0xff51afd7ed558ccdL;
+        cle ^= cle >>> 33;
+        cle *= 0xc4ceb9fe1a85ec53L;
+        cle ^= cle >>> 33;
+        return (int) cle;
+    }
+
+    /** Alloue la table à une nouvelle taille (puissance de 2) et y range les clés existantes. */
+    private void allouer ( int taille ) {
+        long anciennesCles[] = this.cles, anciensNombres[] = this.nombres;
+        int i, j;
+
+        this.cles = new long[taille];
+        this.nombres = new long[taille];
+        if ( anciennesCles != null ) {
+            for ( i = 0; i < anciennesCles.length; i++ ) {
+                if ( anciennesCles[i] != VIDE ) {
+                    j = this.chercher(anciennesCles[i]);
+                    this.cles[j] = anciennesCles[i];
+                    this.nombres[j] = anciensNombres[i];
+                }
+            }
+        }
+    }
+
+    /** Combinaison distincte et son nombre de grilles. */
+    public static class Combinaison {
+
+        private final long cle;
+        private final long nombre;
+
+        Combinaison ( long cle, long nombre ) {
+            this.cle = cle;
+            this.nombre = nombre;
+        }
+
+        /** @return Le nombre de grilles jouées avec cette combinaison. */
+        public long getNombre() {
+            return this.nombre;
+        }
+
+        /** @return La grille de cette combinaison. */
+        public Grille getGrille() {
+            return new Grille(masqueNumeros(this.cle), masqueNumerosChance(this.cle));
+        }
+
+        /** Combinaison et nombre de grilles. */
+        @Override
+        public String toString () {
+            return this.getGrille() + "\tx " + this.nombre;
+        }
+    }
+
+}
@@ -0,0 +1,348 @@
+package NFA031.LotoJava;
+
+import java.util.Arrays;
+
+/**
+ * Index inversé d'une population de grilles.
+ * Pour chaque numéro (1 à 49) et chaque numéro chance (1 à 10), une liste de bits
+ * indique les grilles qui l'ont coché. Comparer toute la population à une grille
+ * gagnante se fait alors par intersections de ces listes et comptage de bits,
+ * 64 grilles à la fois, sans parcourir les grilles une à une.
+ * Le format de chaque grille (nombres de numéros et de numéros chance cochés) est
+ * aussi rangé en listes de bits, un bit du nombre par liste: les grilles multiples
+ * sont comptées comme dans DrawTotals, une grille de n numéros et c numéros chance
+ * comptant pour C(n, 5) * c combinaisons simples réparties par TableRangs.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class GridIndex {
+
+    // Nombre de bits des nombres de numéros (moins NB_NUMEROS_MIN) et de numéros chance cochés
+    private final static int BITS_TAILLE = 32 - Integer.numberOfLeadingZeros(Grille.NB_NUMEROS_MAX - Grille.NB_NUMEROS_MIN);
+    private final static int BITS_TAILLE_CHANCE = 32 - Integer.numberOfLeadingZeros(Grille.CHANCE_NB_NUMEROS_MAX);
+
+    // Listes de bits des grilles par numéro coché
+    private long postingsNumeros[][] = new long[Grille.NUMERO_MAX + 1][];
+    // Listes de bits des grilles par numéro chance coché
+    private long postingsChance[][] = new long[Grille.CHANCE_NUMERO_MAX + 1][];
+    // Nombre de numéros cochés de chaque grille, moins NB_NUMEROS_MIN: la liste j porte le bit j du nombre
+    private long postingsTailles[][] = new long[BITS_TAILLE][];
+    // Nombre de numéros chance cochés de chaque grille: la liste j porte le bit j du nombre
+    private long postingsTaillesChance[][] = new long[BITS_TAILLE_CHANCE][];
+    // Nombre de grilles indexées
+    private int nbGrilles = 0;
+
+    /**
+     * Constructeur: index vide prévu pour un nombre de grilles donné.
+     * @param capaciteGrilles Le nombre de grilles attendues.
+     * @throws IllegalArgumentException Si la capacité est négative.
+     */
+    public GridIndex ( int capaciteGrilles ) {
+        if ( capaciteGrilles >= 0 ) {
+            int mots = (capaciteGrilles + 63) >>> 6, n;
+            for ( n = 0; n < this.postingsNumeros.length; n++ ) {
+                this.postingsNumeros[n] = new long[mots];
+            }
+            for ( n = 0; n < this.postingsChance.length; n++ ) {
+                this.postingsChance[n] = new long[mots];
+            }
+            for ( n = 0; n < this.postingsTailles.length; n++ ) {
+                this.postingsTailles[n] = new long[mots];
+            }
+            for ( n = 0; n < this.postingsTaillesChance.length; n++ ) {
+                this.postingsTaillesChance[n] = new long[mots];
+            }
+        } else {
+            throw new IllegalArgumentException("La capacité demandée (" + capaciteGrilles + ") est négative.");
+        }
+    }
+
+    /**
+     * Construit l'index de toutes les grilles d'un stockage (même numérotation des grilles).
+     * @param store Le stockage des bulletins.
+     * @return L'index des grilles.
+     */
+    public static GridIndex depuis ( BulletinStore store ) {
+        GridIndex index = new GridIndex(store.getNbGrilles());
+        int i;
+
+        for ( i = 0; i < store.getNbGrilles(); i++ ) {
+            index.ajouter(store.getMasqueNumeros(i), store.getMasqueNumerosChance(i));
+        }
+        return index;
+    }
+
+    /**
+     * Construit l'index de toutes les grilles d'une archive (même numérotation des grilles).
+     * @param archive L'archive du tirage.
+     * @return L'index des grilles.
+     * @throws ArithmeticException Si l'archive contient trop de grilles pour un index.
+     * @throws java.io.UncheckedIOException Si un enregistrement de l'archive est corrompu.
+     */
+    public static GridIndex depuis ( ArchiveReader archive ) {
+        GridIndex index = new GridIndex(Math.toIntExact(archive.getNbGrilles()));
+        long i;
+
+        for ( i = 0; i < archive.getNbGrilles(); i++ ) {
+            index.ajouter(archive.getMasqueNumeros(i), archive.getMasqueNumerosChance(i));
+        }
+        return index;
+    }
+
+    /**
+     * Ajoute une grille à l'index.
+     * @param masqueNumeros Le masque des numéros cochés.
+     * @param masqueNumerosChance Le masque des numéros chance cochés.
+     * @return L'identifiant de la grille dans l'index.
+     * @throws IndexOutOfBoundsException Si le nombre de numéros ou de numéros chance cochés est hors limites.
+     * @throws IllegalStateException Si l'index est plein.
+     */
+    public int ajouter ( long masqueNumeros, short masqueNumerosChance ) {
+        int id = this.nbGrilles, mot = id >>> 6;
+        long bit = 1L << id, chance = masqueNumerosChance & 0xFFFFL;
+        byte nbNumeros = (byte) Long.bitCount(masqueNumeros), nbNumerosChance = (byte) Long.bitCount(chance), j;
+
+        if ( id == Integer.MAX_VALUE ) {
+            throw new IllegalStateException("L'index ne peut pas contenir plus de " + Integer.MAX_VALUE + " grilles.");
+        }
+        Grille.verifierNbNumeros(nbNumeros, nbNumerosChance);
+        if ( mot == this.postingsNumeros[0].length ) {
+            this.agrandir();
+        }
+        for ( j = 0; j < BITS_TAILLE; j++ ) {
+            if ( ((nbNumeros - Grille.NB_NUMEROS_MIN) >> j & 1) != 0 ) {
+                this.postingsTailles[j][mot] |= bit;
+            }
+        }
+        for ( j = 0; j < BITS_TAILLE_CHANCE; j++ ) {
+            if ( (nbNumerosChance >> j & 1) != 0 ) {
+                this.postingsTaillesChance[j][mot] |= bit;
+            }
+        }
+        while ( masqueNumeros != 0 ) {
+            this.postingsNumeros[Long.numberOfTrailingZeros(masqueNumeros)][mot] |= bit;
+            masqueNumeros &= masqueNumeros - 1;
+        }
+        while ( chance != 0 ) {
+            this.postingsChance[Long.numberOfTrailingZeros(chance)][mot] |= bit;
+            chance &= chance - 1;
+        }
+        this.nbGrilles++;
+        return id;
+    }
+
+    /** Agrandit toutes les listes de bits. */
+    private void agrandir () {
+        int mots = this.postingsNumeros[0].length + (this.postingsNumeros[0].length >> 1) + 1, n;
+
+        for ( n = 0; n < this.postingsNumeros.length; n++ ) {
+            this.postingsNumeros[n] = Arrays.copyOf(this.postingsNumeros[n], mots);
+        }
+        for ( n = 0; n < this.postingsChance.length; n++ ) {
+            this.postingsChance[n] = Arrays.copyOf(this.postingsChance[n], mots);
+        }
+        for ( n = 0; n < this.postingsTailles.length; n++ ) {
+            this.postingsTailles[n] = Arrays.copyOf(this.postingsTailles[n], mots);
+        }
+        for ( n = 0; n < this.postingsTaillesChance.length; n++ ) {
+            this.postingsTaillesChance[n] = Arrays.copyOf(this.postingsTaillesChance[n], mots);
+        }
+    }
+
+    /**
+     * Retourne le nombre de grilles indexées.
+     * @return Le nombre de grilles.
+     */
+    public int getNbGrilles() {
+        return this.nbGrilles;
+    }
+
+    /**
+     * Compte les combinaisons gagnantes de chaque rang face à une grille gagnante,
+     * comme DrawTotals (une grille multiple compte pour toutes ses combinaisons simples).
+     * @param gagnante La grille gagnante.
+     * @return Le nombre de combinaisons gagnantes par rang (index 0 pour le rang 1).
+     * @throws ArithmeticException Si un compteur dépasse la capacité d'un long.
+     */
+    public long[] compterGagnants ( Grille gagnante ) {
+        long compteurs[] = new long[TableRangs.NB_RANGS];
+        this.parcourir(gagnante, compteurs, 0, null);
+        return compteurs;
+    }
+
+    /**
+     * Retourne les identifiants des grilles gagnant au moins une combinaison simple
+     * à un rang face à une grille gagnante (une grille multiple peut gagner à plusieurs rangs).
+     * @param gagnante La grille gagnante.
+     * @param rang Le rang cherché (de 1 à TableRangs.NB_RANGS).
+     * @return Les identifiants des grilles gagnantes à ce rang, par ordre croissant.
+     * @throws IndexOutOfBoundsException Si le rang est hors limites.
+     */
+    public int[] getGagnants ( Grille gagnante, int rang ) {
+        int ids[];
+
+        if ( rang < 1 || rang > TableRangs.NB_RANGS ) {
+            throw new IndexOutOfBoundsException("Le rang demandé (" + rang + ") "
+                    + "est hors limites (de 1 à " + TableRangs.NB_RANGS + ").");
+        }
+        ids = new int[this.parcourir(gagnante, null, rang, null)];
+        this.parcourir(gagnante, null, rang, ids);
+        return ids;
+    }
+
+    /**
+     * Parcourt l'index mot par mot (64 grilles à la fois).
+     * Les nombres de numéros et de numéros chance trouvés par chaque grille sont tenus
+     * dans des "tranches" de bits (additionneur bit à bit): la tranche j contient le bit j
+     * du compte de chaque grille. Les grilles sont regroupées par nombre de numéros cochés
+     * (n) et trouvés (m). Une ligne de TableRangs étant proportionnelle au nombre de
+     * numéros chance trouvés (cm) et non trouvés (c - cm), il suffit de cumuler ces deux
+     * nombres par groupe: les lignes ne sont lues qu'une fois, à la fin du parcours.
+     * @param gagnante La grille gagnante.
+     * @param compteurs Les compteurs par rang à remplir (si rangCible vaut 0).
+     * @param rangCible Le rang dont on veut les grilles (0 pour compter les combinaisons).
+     * @param ids Le tableau à remplir avec les identifiants (si rangCible > 0; null pour les compter seulement).
+     * @return Le nombre de grilles gagnantes au rang cible (0 si rangCible vaut 0).
+     */
+    private int parcourir ( Grille gagnante, long compteurs[], int rangCible, int ids[] ) {
+        long masque = gagnante.getMasqueNumeros();
+        long masqueChance = gagnante.getMasqueNumerosChance() & 0xFFFFL;
+        int numeros[] = new int[Long.bitCount(masque)], numerosChance[] = new int[Long.bitCount(masqueChance)];
+        int nbMots = (this.nbGrilles + 63) >>> 6, nbTailles = Grille.NB_NUMEROS_MAX - Grille.NB_NUMEROS_MIN + 1;
+        int mot, i, j, k, m, n, nbIds = 0;
+        // Une tranche par bit du nombre de numéros (chance) de la grille gagnante
+        long tranches[] = new long[32 - Integer.numberOfLeadingZeros(numeros.length)];
+        long tranchesChance[] = new long[32 - Integer.numberOfLeadingZeros(numerosChance.length)];
+        long tailles[] = new long[BITS_TAILLE], taillesChance[] = new long[BITS_TAILLE_CHANCE];
+        long egal[] = new long[numeros.length + 1], egalTaille[] = new long[nbTailles];
+        // Numéros chance cumulés par groupe (n, m): trouvés, et cochés mais non trouvés
+        long trouvesChance[][] = new long[nbTailles][egal.length], manquesChance[][] = new long[nbTailles][egal.length];
+        // Rang cible: le groupe gagne-t-il avec un numéro chance trouvé, avec un numéro chance non trouvé ?
+        boolean gagneTrouve[][] = new boolean[nbTailles][egal.length], gagneManque[][] = new boolean[nbTailles][egal.length];
+        long groupe, chanceTrouvee, chanceManquee, selection;
+        long somme, sommeTrouves;
+
+        for ( i = 0; i < numeros.length; i++, masque &= masque - 1 ) {
+            numeros[i] = Long.numberOfTrailingZeros(masque);
+        }
+        for ( i = 0; i < numerosChance.length; i++, masqueChance &= masqueChance - 1 ) {
+            numerosChance[i] = Long.numberOfTrailingZeros(masqueChance);
+        }
+        for ( k = 0; k < nbTailles; k++ ) {
+            n = k + Grille.NB_NUMEROS_MIN;
+            for ( m = 0; m <= n && m < egal.length; m++ ) {
+                gagneTrouve[k][m] = rangCible > 0 && TableRangs.getNbCombinaisons(TableRangs.index(n, m,
+                        Grille.CHANCE_NB_NUMEROS_MIN, Grille.CHANCE_NB_NUMEROS_MIN), rangCible) > 0;
+                gagneManque[k][m] = rangCible > 0 && TableRangs.getNbCombinaisons(TableRangs.index(n, m,
+                        Grille.CHANCE_NB_NUMEROS_MIN, 0), rangCible) > 0;
+            }
+        }
+
+        for ( mot = 0; mot < nbMots; mot++ ) {
+            // Comptage des numéros trouvés, en parallèle sur les 64 grilles du mot
+            Arrays.fill(tranches, 0L);
+            for ( i = 0; i < numeros.length; i++ ) {
+                GridIndex.additionner(tranches, this.postingsNumeros[numeros[i]][mot]);
+            }
+            Arrays.fill(tranchesChance, 0L);
+            for ( i = 0; i < numerosChance.length; i++ ) {
+                GridIndex.additionner(tranchesChance, this.postingsChance[numerosChance[i]][mot]);
+            }
+            for ( j = 0; j < tailles.length; j++ ) {
+                tailles[j] = this.postingsTailles[j][mot];
+            }
+            for ( j = 0; j < taillesChance.length; j++ ) {
+                taillesChance[j] = this.postingsTaillesChance[j][mot];
+            }
+            for ( m = 0; m < egal.length; m++ ) {
+                egal[m] = GridIndex.egal(tranches, m);
+            }
+            // Grilles existantes du mot (le dernier mot peut être incomplet)
+            groupe = ( mot == nbMots - 1 && (this.nbGrilles & 63) != 0 ) ? (1L << this.nbGrilles) - 1 : -1L;
+            for ( k = 0; k < nbTailles; k++ ) {
+                egalTaille[k] = groupe & GridIndex.egal(tailles, k);
+            }
+
+            if ( rangCible == 0 ) {
+                for ( k = 0; k < nbTailles; k++ ) {
+                    for ( m = 0; m < egal.length && egalTaille[k] != 0; m++ ) {
+                        groupe = egalTaille[k] & egal[m];
+                        if ( groupe != 0 ) {
+                            somme = 0L;
+                            sommeTrouves = 0L;
+                            for ( j = 0; j < taillesChance.length; j++ ) {
+                                somme += (long) Long.bitCount(groupe & taillesChance[j]) << j;
+                            }
+                            for ( j = 0; j < tranchesChance.length; j++ ) {
+                                sommeTrouves += (long) Long.bitCount(groupe & tranchesChance[j]) << j;
+                            }
+                            trouvesChance[k][m] += sommeTrouves;
+                            manquesChance[k][m] += somme - sommeTrouves;
+                        }
+                    }
+                }
+            } else {
+                // Grilles ayant trouvé un numéro chance (cm > 0), et en ayant coché un non trouvé (c > cm)
+                chanceTrouvee = 0L;
+                chanceManquee = 0L;
+                for ( j = 0; j < tranchesChance.length; j++ ) {
+                    chanceTrouvee |= tranchesChance[j];
+                }
+                for ( j = 0; j < taillesChance.length; j++ ) {
+                    chanceManquee |= taillesChance[j] ^ ( j < tranchesChance.length ? tranchesChance[j] : 0L );
+                }
+                selection = 0L;
+                for ( k = 0; k < nbTailles; k++ ) {
+                    for ( m = 0; m < egal.length && egalTaille[k] != 0; m++ ) {
+                        selection |= egalTaille[k] & egal[m]
+                                & ( (gagneTrouve[k][m] ? chanceTrouvee : 0L) | (gagneManque[k][m] ? chanceManquee : 0L) );
+                    }
+                }
+                if ( ids == null ) {
+                    nbIds += Long.bitCount(selection);
+                } else {
+                    for ( ; selection != 0; selection &= selection - 1 ) {
+                        ids[nbIds++] = (mot << 6) + Long.numberOfTrailingZeros(selection);
+                    }
+                }
+            }
+        }
+
+        if ( rangCible == 0 ) {
+            for ( k = 0; k < nbTailles; k++ ) {
+                n = k + Grille.NB_NUMEROS_MIN;
+                for ( m = 0; m <= n && m < egal.length; m++ ) {
+                    // Ligne d'une grille d'un seul numéro chance, trouvé puis non trouvé
+                    TableRangs.ajouterLigne(TableRangs.index(n, m, Grille.CHANCE_NB_NUMEROS_MIN,
+                            Grille.CHANCE_NB_NUMEROS_MIN), compteurs, trouvesChance[k][m]);
+                    TableRangs.ajouterLigne(TableRangs.index(n, m, Grille.CHANCE_NB_NUMEROS_MIN, 0),
+                            compteurs, manquesChance[k][m]);
+                }
+            }
+        }
+        return nbIds;
+    }
+
+    /** Ajoute une liste de bits (un bit par grille) aux compteurs en tranches de bits. */
+    private static void additionner ( long tranches[], long liste ) {
+        long retenue;
+        int j;
+
+        for ( j = 0; j < tranches.length && liste != 0; j++ ) {
+            retenue = tranches[j] & liste;
+            tranches[j] ^= liste;
+            liste = retenue;
+        }
+    }
+
+    /** Retourne les grilles dont le compte en tranches de bits vaut une valeur. */
+    private static long egal ( long tranches[], int valeur ) {
+        long resultat = -1L;
+        int j;
+
+        for ( j = 0; j < tranches.length; j++ ) {
+            resultat &= ( (valeur >> j) & 1 ) != 0 ? tranches[j] : ~tranches[j];
+        }
+        return resultat;
+    }
+
+}
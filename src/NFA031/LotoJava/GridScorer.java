@@ -0,0 +1,37 @@
+package NFA031.LotoJava;
+
+/**
+ * Calcul des rangs de gain d'un lot de grilles rangées en colonnes
+ * (masques des numéros et des numéros chance, comme dans BulletinStore).
+ * Les rangs rendus sont les codes de Grille.calculRangGagnant().
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public interface GridScorer {
+
+    /**
+     * Calcule le rang de gain de grilles consécutives.
+     * @param masquesNumeros Les masques des numéros cochés.
+     * @param masquesNumerosChance Les masques des numéros chance cochés.
+     * @param debut L'index de la première grille.
+     * @param nb Le nombre de grilles.
+     * @param gagnante La grille gagnante du tirage.
+     * @param rangs Les rangs calculés (même index que les masques).
+     */
+    void scorer ( long masquesNumeros[], short masquesNumerosChance[], int debut, int nb, Grille gagnante, byte rangs[] );
+
+    /**
+     * Retourne le calcul le plus rapide disponible: vectoriel si la classe VectorGridScorer
+     * (compilée à part, depuis le dossier src-vector) et le module jdk.incubator.vector
+     * sont présents (--add-modules jdk.incubator.vector), scalaire sinon.
+     * @return Le calcul des rangs.
+     */
+    static GridScorer creer () {
+        try {
+            return (GridScorer) Class.forName("NFA031.LotoJava.VectorGridScorer").getDeclaredConstructor().newInstance();
+        } catch ( ReflectiveOperationException | LinkageError | UnsupportedOperationException e ) {
+            // Classe ou module absent, ou vecteurs trop courts pour être utiles
+            return new ScalarGridScorer();
+        }
+    }
+
+}
@@ -1,7 +1,5 @@
 package NFA031.LotoJava;
 
-import java.util.Random;
-
 /**
  * Classe représentant une grille classique de jeu de Loto.
  * @author Aurélie Lucet <aurelie.lucet at gmail.com>
@@ -27,12 +25,34 @@ public class Grille {
     /** Mise de base en euros, par grille. */
     public final static byte MISE_DE_BASE = 2;
     
-    // Tableau interne des numéros cochés.
+    // Mises précalculées: MISES[nbNumeros][nbNumerosChance]
+    private final static int MISES[][] = new int[Grille.NB_NUMEROS_MAX + 1][Grille.CHANCE_NB_NUMEROS_MAX + 1];
+    
+    static {
+        byte n, nc;
+        for ( n = Grille.NB_NUMEROS_MIN; n <= Grille.NB_NUMEROS_MAX; n++ ) {
+            for ( nc = Grille.CHANCE_NB_NUMEROS_MIN; nc <= Grille.CHANCE_NB_NUMEROS_MAX; nc++ ) {
+                MISES[n][nc] = Math.toIntExact( nc 
+                        * Combinatoire.combinaisons( n, Grille.NB_NUMEROS_MIN ) 
+                        * Grille.MISE_DE_BASE );
+            }
+        }
+    }
+    
+    // Masque des numéros cochés: le bit n est levé si le numéro n est coché.
+    private long masqueNumeros = 0L;
+    // Masque des numéros chance cochés: le bit n est levé si le numéro chance n est coché.
+    private short masqueNumerosChance = 0;
+    // Nombre de numéros cochés.
+    private byte nbNumeros;
+    // Nombre de numéros chance cochés.
+    private byte nbNumerosChance;
+    // Vue tableau des numéros cochés, construite à la demande depuis le masque.
     private byte numerosChoisis[];
-    // Tableau interne des numéros chance cochés.
+    // Vue tableau des numéros chance cochés, construite à la demande depuis le masque.
     private byte numerosChanceChoisis[];
     // Mise de la grille
-    private short miseGrille = 0;
+    private int miseGrille = 0;
     // Grille gagnante
     private Grille gagnante;
     // Nombre de numéros gagnants
@@ -41,6 +61,8 @@ public class Grille {
     private byte nbNumerosChanceGagnants = 0;
     // Rang du bulletin
     private byte rang = 0;
+    // Position de la ligne de la grille dans la table de répartition des rangs (-1 si non calculée)
+    private int indexRepartition = -1;
     
     /** 
      * Constructeur: tirage des numéros à cocher pour la grille.
@@ -66,84 +88,177 @@ public class Grille {
      * @throws IndexOutOfBoundsException Si les paramètres sont hors limites.
      */
     public Grille ( byte nbNumeros, byte nbNumerosChance ) {
-        if ( nbNumeros >= Grille.NB_NUMEROS_MIN 
-                && nbNumeros <= Grille.NB_NUMEROS_MAX ) {
-            if ( nbNumerosChance >= Grille.CHANCE_NB_NUMEROS_MIN 
-                    && nbNumerosChance <= Grille.CHANCE_NB_NUMEROS_MAX ) {
-                this.numerosChoisis = new byte[nbNumeros];
-                this.numerosChanceChoisis = new byte[nbNumerosChance];
-                this.cocherGrille();
-                this.calculMise();
-            } else {
-                throw new IndexOutOfBoundsException("Le nombre de numéros chance demandé ("
-                        + nbNumerosChance + ") est hors limites (de " 
-                        + Grille.CHANCE_NB_NUMEROS_MIN + " à " + Grille.CHANCE_NB_NUMEROS_MAX + ").");
-            }
-        } else {
+        this( nbNumeros, nbNumerosChance, new SplittableRandomSource() );
+    }
+    
+    /**
+     * Constructeur: tirage des numéros à cocher pour la grille avec un générateur fourni.
+     * @param nbNumeros Le nombre de numéros à cocher.
+     * @param nbNumerosChance Le nombre de numéros chance à cocher.
+     * @param r Le générateur aléatoire à utiliser.
+     * @throws IndexOutOfBoundsException Si les paramètres sont hors limites.
+     */
+    public Grille ( byte nbNumeros, byte nbNumerosChance, RandomSource r ) {
+        this.recocher(nbNumeros, nbNumerosChance, r);
+    }
+    
+    /**
+     * Réutilise la grille: nouveau tirage des numéros à cocher, sans nouvelle allocation.
+     * La comparaison à une éventuelle grille gagnante est effacée.
+     * Consomme le générateur exactement comme le constructeur équivalent.
+     * @param nbNumeros Le nombre de numéros à cocher.
+     * @param nbNumerosChance Le nombre de numéros chance à cocher.
+     * @param r Le générateur aléatoire à utiliser.
+     * @throws IndexOutOfBoundsException Si les paramètres sont hors limites.
+     */
+    public void recocher ( byte nbNumeros, byte nbNumerosChance, RandomSource r ) {
+        Grille.verifierNbNumeros(nbNumeros, nbNumerosChance);
+        this.nbNumeros = nbNumeros;
+        this.nbNumerosChance = nbNumerosChance;
+        this.cocherGrille(r);
+        this.calculMise();
+        this.reinitialiser();
+    }
+    
+    /**
+     * Constructeur: grille des numéros choisis par le joueur.
+     * @param numeros Les numéros cochés (de NUMERO_MIN à NUMERO_MAX, dans un ordre quelconque).
+     * @param numerosChance Les numéros chance cochés (de CHANCE_NUMERO_MIN à CHANCE_NUMERO_MAX).
+     * @throws NullPointerException Si un des tableaux fournis est nul.
+     * @throws IndexOutOfBoundsException Si le nombre de numéros ou de numéros chance est hors limites.
+     * @throws IllegalArgumentException Si un numéro est hors limites ou coché deux fois.
+     */
+    public Grille ( byte numeros[], byte numerosChance[] ) {
+        if ( numeros == null || numerosChance == null ) {
+            throw new NullPointerException("Les numéros ou les numéros chance fournis sont nuls !");
+        }
+        Grille.verifierNbNumeros((byte) Math.min(numeros.length, Byte.MAX_VALUE),
+                (byte) Math.min(numerosChance.length, Byte.MAX_VALUE));
+        this.masqueNumeros = Grille.versMasque(numeros, Grille.NUMERO_MIN, Grille.NUMERO_MAX, "numéro");
+        this.masqueNumerosChance = (short) Grille.versMasque(numerosChance,
+                Grille.CHANCE_NUMERO_MIN, Grille.CHANCE_NUMERO_MAX, "numéro chance");
+        this.nbNumeros = (byte) numeros.length;
+        this.nbNumerosChance = (byte) numerosChance.length;
+        this.calculMise();
+    }
+    
+    /**
+     * Vérifie le nombre de numéros et de numéros chance d'une grille.
+     * @throws IndexOutOfBoundsException Si un des nombres est hors limites.
+     */
+    static void verifierNbNumeros ( byte nbNumeros, byte nbNumerosChance ) {
+        if ( nbNumeros < Grille.NB_NUMEROS_MIN || nbNumeros > Grille.NB_NUMEROS_MAX ) {
             throw new IndexOutOfBoundsException("Le nombre de numéros demandé ("
                     + nbNumeros + ") est hors limites (de " 
                     + Grille.NB_NUMEROS_MIN + " à " + Grille.NB_NUMEROS_MAX + ").");
         }
+        if ( nbNumerosChance < Grille.CHANCE_NB_NUMEROS_MIN || nbNumerosChance > Grille.CHANCE_NB_NUMEROS_MAX ) {
+            throw new IndexOutOfBoundsException("Le nombre de numéros chance demandé ("
+                    + nbNumerosChance + ") est hors limites (de " 
+                    + Grille.CHANCE_NB_NUMEROS_MIN + " à " + Grille.CHANCE_NB_NUMEROS_MAX + ").");
+        }
     }
     
-    /** Choix des numéros par random. */
-    private void cocherGrille () {
-        byte i, n;
-        Random r = new Random();
-        
-        // RAZ
-        this.numerosChoisis = new byte[this.numerosChoisis.length];
-        this.numerosChanceChoisis = new byte[this.numerosChanceChoisis.length];
+    /**
+     * Construit le masque de numéros choisis.
+     * @param numeros Les numéros choisis.
+     * @param min Le plus petit numéro possible.
+     * @param max Le plus grand numéro possible.
+     * @param nom Le nom des numéros (pour les messages d'erreur).
+     * @return Le masque des numéros.
+     * @throws IllegalArgumentException Si un numéro est hors limites ou choisi deux fois.
+     */
+    private static long versMasque ( byte numeros[], byte min, byte max, String nom ) {
+        long masque = 0L;
         
-        // Cochage des numéros
-        for ( i = 0; i < this.numerosChoisis.length; i++ ) {
-            do {
-                n = (byte) r.nextInt(Grille.NUMERO_MAX + 1); // Génère un entier de 0 (inclus) à max+1 (exclus)
-            // Tant que 0 est tiré OU que le numéro tiré est déjà coché, on en génère un autre:
-            } while ( n <= 0 || this.estCoche(n, false) );
-            this.numerosChoisis[i] = n;
-        }
-        // Cochage des numéros chance
-        for ( i = 0; i < this.numerosChanceChoisis.length; i++ ) {
-            do {
-                n = (byte) r.nextInt(Grille.CHANCE_NUMERO_MAX + 1); // Génère un entier de 0 (inclus) à max+1 (exclus)
-            // Tant que 0 est tiré OU que le numéro tiré est déjà coché, on en génère un autre:
-            } while ( n <= 0 || this.estCoche(n, true) );
-            this.numerosChanceChoisis[i] = n;
+        for ( byte numero : numeros ) {
+            if ( numero < min || numero > max ) {
+                throw new IllegalArgumentException("Le " + nom + " " + numero + " est hors limites "
+                        + "(de " + min + " à " + max + ").");
+            }
+            if ( (masque & (1L << numero)) != 0 ) {
+                throw new IllegalArgumentException("Le " + nom + " " + numero + " est coché deux fois.");
+            }
+            masque |= 1L << numero;
         }
+        return masque;
     }
     
-    /** Trie le tableau des numéros cochés. */
-    private void trierNumeros () {
-        byte i, j, nb;
-        /**
-        * Tri par insertion:
-        * On parcourt le tableau en insérant chaque élément [i] à sa place parmi les précédents.
-        * On commence donc par le 2e élément, pour pouvoir le comparer au 1er.
-        */
-        // Tri des numéros
-        for ( i = 1; i < this.numerosChoisis.length; i++ ) {
-                nb = this.numerosChoisis[i];
-                j = i; // Compteur descendant, à décrémenter au fur et à mesure qu'on remonte au début
-                // Tant qu'on est pas au début du tableau
-                // et que le nombre qu'on veut placer est inférieur au précédent, on décale
-                while ( j >= 1 && this.numerosChoisis[j-1] > nb ) {
-                        this.numerosChoisis[j] = this.numerosChoisis[j-1];
-                        j--;
-                }
-                this.numerosChoisis[j] = nb;
+    /**
+     * Constructeur: grille reconstruite à partir de ses masques de numéros cochés.
+     * Utilisé pour servir des vues sur les grilles d'un stockage compact.
+     * @param masqueNumeros Le masque des numéros cochés.
+     * @param masqueNumerosChance Le masque des numéros chance cochés.
+     */
+    Grille ( long masqueNumeros, short masqueNumerosChance ) {
+        this.masqueNumeros = masqueNumeros;
+        this.masqueNumerosChance = masqueNumerosChance;
+        this.nbNumeros = (byte) Long.bitCount(masqueNumeros);
+        this.nbNumerosChance = (byte) Integer.bitCount(masqueNumerosChance & 0xFFFF);
+        this.calculMise();
+    }
+    
+    /**
+     * Efface la comparaison à la grille gagnante (numéros trouvés, rang).
+     */
+    public void reinitialiser () {
+        this.gagnante = null;
+        this.nbNumerosGagnants = 0;
+        this.nbNumerosChanceGagnants = 0;
+        this.rang = 0;
+        this.indexRepartition = -1;
+    }
+    
+    /**
+     * Choix des numéros par random.
+     * @param r Le générateur aléatoire à utiliser.
+     */
+    private void cocherGrille ( RandomSource r ) {
+        this.masqueNumeros = Grille.tirerMasque(this.nbNumeros, Grille.NUMERO_MAX, r);
+        this.masqueNumerosChance = (short) Grille.tirerMasque(this.nbNumerosChance, Grille.CHANCE_NUMERO_MAX, r);
+        this.numerosChoisis = null;
+        this.numerosChanceChoisis = null;
+    }
+    
+    /**
+     * Tire des numéros distincts de 1 à max, sans aucun rejet (algorithme de Floyd):
+     * pour j de max-k+1 à max, on tire t de 1 à j; si t est déjà coché, on coche j
+     * (qui ne peut pas l'être encore). Chaque combinaison est équiprobable.
+     * @param k Le nombre de numéros à tirer.
+     * @param max Le plus grand numéro possible (au plus 63).
+     * @param r Le générateur aléatoire à utiliser.
+     * @return Le masque des numéros tirés.
+     */
+    static long tirerMasque ( int k, int max, RandomSource r ) {
+        long masque = 0L;
+        int j, t;
+        
+        for ( j = max - k + 1; j <= max; j++ ) {
+            t = 1 + r.nextInt(j);   // Génère un entier de 1 à j
+            if ( (masque & (1L << t)) != 0 ) {
+                t = j;
+            }
+            masque |= 1L << t;
         }
-        // Tri des numéros chance
-        for ( i = 1; i < this.numerosChanceChoisis.length; i++ ) {
-                nb = this.numerosChanceChoisis[i];
-                j = i;
-                while ( j >= 1 && this.numerosChanceChoisis[j-1] > nb ) {
-                        this.numerosChanceChoisis[j] = this.numerosChanceChoisis[j-1];
-                        j--;
-                }
-                this.numerosChanceChoisis[j] = nb;
+        return masque;
+    }
+    
+    /**
+     * Construit le tableau des numéros dont le bit est levé dans un masque.
+     * @param masque Le masque des numéros cochés.
+     * @param nb Le nombre de numéros cochés dans le masque.
+     * @return Le tableau des numéros cochés, par ordre croissant.
+     */
+    private static byte[] versTableau ( long masque, byte nb ) {
+        byte tableau[] = new byte[nb];
+        byte i;
+        
+        // Parcours des bits levés du plus faible au plus fort: le tableau est donc déjà trié
+        for ( i = 0; i < nb; i++ ) {
+            tableau[i] = (byte) Long.numberOfTrailingZeros(masque);
+            masque &= masque - 1; // Efface le bit le plus faible
         }
-		
+        return tableau;
     }
     
     /**
@@ -151,6 +266,9 @@ public class Grille {
      * @return Le tableau des numéros cochés de la grille.
      */
     public byte[] getNumeros() {
+        if ( this.numerosChoisis == null ) {
+            this.numerosChoisis = Grille.versTableau(this.masqueNumeros, this.nbNumeros);
+        }
         return this.numerosChoisis;
     }
     
@@ -159,60 +277,34 @@ public class Grille {
      * @return Le tableau des numéros cochés de la grille.
      */
     public byte[] getNumerosChance() {
+        if ( this.numerosChanceChoisis == null ) {
+            this.numerosChanceChoisis = Grille.versTableau(this.masqueNumerosChance & 0xFFFFL, this.nbNumerosChance);
+        }
         return this.numerosChanceChoisis;
     }
     
     /**
-     * Retourne la mise calculée de la grille.
-     * @return La mise de la grille.
+     * Retourne le masque des numéros cochés: le bit n est levé si le numéro n est coché.
+     * @return Le masque des numéros cochés de la grille.
      */
-    public short getMise() {
-        return this.miseGrille;
+    public long getMasqueNumeros() {
+        return this.masqueNumeros;
     }
     
     /**
-     * Recherche un numéro dans les grilles.
-     * @param numero Le numéro dont on doit vérifier s'il est déjà coché.
-     * @param chercherChance Indique si l'on doit chercher dans la grille
-     *                          régulière (false), ou celle des numéros
-     *                          chance (true).
-     * @throws IndexOutOfBoundsException Si le numéro fourni est hors des limites des numéros cochables.
+     * Retourne le masque des numéros chance cochés: le bit n est levé si le numéro chance n est coché.
+     * @return Le masque des numéros chance cochés de la grille.
      */
-    private boolean estCoche (int numero, boolean chercherChance) {
-        boolean trouve = false;
-        
-        if ( !chercherChance ) {
-            // Validation du numéro demandé, pour ne pas rechercher inutilement
-            if ( numero <= Grille.NUMERO_MAX && numero >= Grille.NUMERO_MIN  ) {
-                // Le numéro est valide, on le recherche
-                byte i;
-                for ( i = 0; i < this.numerosChoisis.length; i++ ) {
-                    if ( numero == this.numerosChoisis[i] ) {
-                        trouve = true;
-                    }
-                }
-            } else {
-                throw new IndexOutOfBoundsException("Le numero demande (" + numero + ")"
-                        + " est hors des cases de la grille (de " + Grille.NUMERO_MIN 
-                        + " a " + Grille.NUMERO_MAX + ").");
-            }
-        } else {
-            // Validation du numéro demandé, pour ne pas rechercher inutilement
-            if ( numero <= Grille.CHANCE_NUMERO_MAX && numero >= Grille.CHANCE_NUMERO_MIN  ) {
-                // Le numéro est valide, on le recherche
-                byte i;
-                for ( i = 0; i < this.numerosChanceChoisis.length; i++ ) {
-                    if ( numero == this.numerosChanceChoisis[i] ) {
-                        trouve = true;
-                    }
-                }
-            } else {
-                throw new IndexOutOfBoundsException("Le numero chance demande (" + numero + ")"
-                        + " est hors des cases de la grille (de " + Grille.CHANCE_NUMERO_MIN 
-                        + " a " + Grille.CHANCE_NUMERO_MAX + ").");
-            }
-        }
-        return trouve;
+    public short getMasqueNumerosChance() {
+        return this.masqueNumerosChance;
+    }
+    
+    /**
+     * Retourne la mise calculée de la grille.
+     * @return La mise de la grille.
+     */
+    public int getMise() {
+        return this.miseGrille;
     }
     
     /**
@@ -236,29 +328,41 @@ public class Grille {
      * @throws IllegalArgumentException Si pas de grille gagnante fournie.
      */
     private void calculerNbNumerosGagnants ( ) {
-        byte i, j;
-        
         if ( this.gagnante != null ) {
-            for ( i = 0; i < this.gagnante.getNumeros().length; i++ ) {   // Pour chaque numéro gagnant,
-                for ( j = 0; j < this.numerosChoisis.length; j++ ) { // On parcourt cette grille à sa recherche
-                    if ( this.numerosChoisis[j] == this.gagnante.getNumeros()[i] ) {
-                        this.nbNumerosGagnants++;
-                    }
-                }
-            }
-            for ( i = 0; i < this.gagnante.getNumerosChance().length; i++ ) {   // Pour chaque numéro chance gagnant,
-                for ( j = 0; j < this.numerosChanceChoisis.length; j++ ) { // On parcourt cette grille à sa recherche
-                    if ( this.numerosChanceChoisis[j] == this.gagnante.getNumerosChance()[i] ) {
-                        this.nbNumerosChanceGagnants++;
-                    }
-                }
-            }
+            // Les numéros trouvés sont les bits levés dans les deux masques
+            this.nbNumerosGagnants = (byte) Long.bitCount(this.masqueNumeros & this.gagnante.masqueNumeros);
+            this.nbNumerosChanceGagnants = (byte) Integer.bitCount(
+                    (this.masqueNumerosChance & this.gagnante.masqueNumerosChance) & 0xFFFF);
             this.rang = Grille.calculRangGagnant(this.nbNumerosGagnants, this.nbNumerosChanceGagnants);
+            this.indexRepartition = TableRangs.index(this.nbNumeros, this.nbNumerosGagnants,
+                    this.nbNumerosChance, this.nbNumerosChanceGagnants);
         } else {
             throw new IllegalArgumentException("Aucune grille gagnante passée au comparateur.");
         }
     }
     
+    /**
+     * Retourne le nombre de combinaisons simples de la grille gagnant à un rang donné.
+     * Une grille de n numéros et c numéros chance compte pour C(n, 5) * c combinaisons.
+     * @param rang Le rang de gain (de 1 à 6).
+     * @return Le nombre de combinaisons gagnantes à ce rang (0 sans grille gagnante).
+     */
+    public int getNbCombinaisonsGagnantes( int rang ) {
+        int nb = 0;
+        if ( this.indexRepartition >= 0 ) {
+            nb = TableRangs.getNbCombinaisons(this.indexRepartition, rang);
+        }
+        return nb;
+    }
+    
+    /**
+     * Retourne la position de la ligne de la grille dans la table de répartition des rangs.
+     * @return La position de la ligne, -1 si aucune grille gagnante n'a été fournie.
+     */
+    public int getIndexRepartition() {
+        return this.indexRepartition;
+    }
+    
     /**
      * Retourne le nombre de bons numéros.
      * @return Le nombre de numéros gagnants.
@@ -276,13 +380,27 @@ public class Grille {
     }
     
     /**
-     * Calcul de la mise d'une grille:
-     * nbNumerosChance * Nombre de combinaisons possibles * Mise pour une grille = total pour la grille
+     * Calcul de la mise d'une grille (lecture dans la table des mises).
      */
     private void calculMise() {
-        this.miseGrille = (short) ( this.numerosChanceChoisis.length 
-                            * Grille.nbCombinaisonsPossibles( this.numerosChoisis.length, Grille.NB_NUMEROS_MIN) 
-                            * Grille.MISE_DE_BASE);
+        this.miseGrille = Grille.MISES[this.nbNumeros][this.nbNumerosChance];
+    }
+    
+    /**
+     * Retourne la mise d'une grille selon son nombre de numéros et de numéros chance:
+     * nbNumerosChance * Nombre de combinaisons possibles * Mise pour une grille = total pour la grille
+     * @param nbNumeros Le nombre de numéros cochés.
+     * @param nbNumerosChance Le nombre de numéros chance cochés.
+     * @return La mise de la grille.
+     * @throws IndexOutOfBoundsException Si les paramètres sont hors limites.
+     */
+    public static int getMise ( byte nbNumeros, byte nbNumerosChance ) {
+        if ( nbNumeros < Grille.NB_NUMEROS_MIN || nbNumeros > Grille.NB_NUMEROS_MAX
+                || nbNumerosChance < Grille.CHANCE_NB_NUMEROS_MIN || nbNumerosChance > Grille.CHANCE_NB_NUMEROS_MAX ) {
+            throw new IndexOutOfBoundsException("La grille demandée (" + nbNumeros + " numéros, "
+                    + nbNumerosChance + " numéros chance) est hors limites.");
+        }
+        return Grille.MISES[nbNumeros][nbNumerosChance];
     }
     
     /**
@@ -290,6 +408,7 @@ public class Grille {
      * @param n Total de nombres à disposition.
      * @param k Nombre de nombres à choisir.
      * @return Le nombre de combinaisons possibles.
+     * @throws ArithmeticException Si le résultat dépasse la capacité d'un long.
      */
     public static long nbCombinaisonsPossibles ( int n, int k ) {
         /* Ckn = nombre de combinaisons possibles
@@ -298,8 +417,9 @@ public class Grille {
         *   k
         * C   = (n!) / (k! * (n-k)!)
         *   n
+        * Lu dans le triangle de Pascal précalculé pour les valeurs du jeu.
         */
-        return factorielle(n) / ( factorielle(k) * factorielle(n - k) );
+        return Combinatoire.combinaisons(n, k);
     }
     
     /**
@@ -316,12 +436,17 @@ public class Grille {
      * @return Un nombre aléatoire de numéros à cocher.
      */
     public static byte getRandomNbNumeros () {
-        Random r = new Random();
-        byte n;
-        do {
-            n = (byte) r.nextInt(Grille.NB_NUMEROS_MAX + 1);
-        } while ( n < Grille.NB_NUMEROS_MIN ); // Tant que le générateur sort un nombre trop petit, on recommence
-        return n;
+        return Grille.getRandomNbNumeros(new SplittableRandomSource());
+    }
+    
+    /**
+     * Génère un nombre aléatoire de numéros à cocher avec un générateur fourni.
+     * @param r Le générateur aléatoire à utiliser.
+     * @return Un nombre aléatoire de numéros à cocher.
+     */
+    public static byte getRandomNbNumeros ( RandomSource r ) {
+        // Tirage direct dans l'intervalle [min, max]
+        return (byte) ( Grille.NB_NUMEROS_MIN + r.nextInt(Grille.NB_NUMEROS_MAX - Grille.NB_NUMEROS_MIN + 1) );
     }
     
     /**
@@ -330,8 +455,28 @@ public class Grille {
      * @return Un nombre aléatoire de numéros chance à cocher.
      */
     public static byte getRandomNbNumerosChance ( byte nbNumerosGrille ) {
-        Random r = new Random();
-        byte n, max;
+        return Grille.getRandomNbNumerosChance(nbNumerosGrille, new SplittableRandomSource());
+    }
+    
+    /**
+     * Génère un nombre aléatoire de numéros chance à cocher avec un générateur fourni.
+     * @param nbNumerosGrille Le nombre de numéros cochés dans la grille principale.
+     * @param r Le générateur aléatoire à utiliser.
+     * @return Un nombre aléatoire de numéros chance à cocher.
+     */
+    public static byte getRandomNbNumerosChance ( byte nbNumerosGrille, RandomSource r ) {
+        byte max = Grille.getMaxNbNumerosChance(nbNumerosGrille);
+        // Tirage direct dans l'intervalle [min, max]
+        return (byte) ( Grille.CHANCE_NB_NUMEROS_MIN + r.nextInt(max - Grille.CHANCE_NB_NUMEROS_MIN + 1) );
+    }
+    
+    /**
+     * Retourne le nombre maximal de numéros chance tirés au hasard pour une grille.
+     * @param nbNumerosGrille Le nombre de numéros cochés dans la grille principale.
+     * @return Le nombre maximal de numéros chance.
+     */
+    public static byte getMaxNbNumerosChance ( byte nbNumerosGrille ) {
+        byte max;
         switch ( nbNumerosGrille ) {
             case Grille.NB_NUMEROS_MAX:
                 max = Grille.CHANCE_NB_NUMEROS_MIN;
@@ -345,10 +490,7 @@ public class Grille {
             default:
                 max = Grille.CHANCE_NB_NUMEROS_MAX;
         }
-        do {
-            n = (byte) r.nextInt(max + 1);
-        } while ( n == 0 ); // Tant que le générateur sort un 0, on recommence
-        return n;
+        return max;
     }
     
     /**
@@ -409,37 +551,20 @@ public class Grille {
      */
     @Override
     public String toString () {
-        String retour = "\t";
-        byte i;
-        
-        this.trierNumeros();
-        for ( i = 0; i < this.numerosChoisis.length; i++ ) {
-            retour += this.numerosChoisis[i];
-            if ( i != this.numerosChoisis.length-1 ) { // Si on n'est pas à la fin, tabulation
-                retour += "\t";
-            }
-        }
-        retour += " ||\t";
-        for ( i = 0; i < this.numerosChanceChoisis.length; i++ ) {
-            retour += this.numerosChanceChoisis[i];
-            if ( i != this.numerosChanceChoisis.length-1 ) { // Si on n'est pas à la fin, tabulation
-                retour += "\t";
-            }
-        }
-        retour += "\t(" + this.miseGrille + " €)\t";
-        return retour;
+        return BulletinRenderer.enChaine(this);
     }
     
     /**
      * Calcul de factorielle
      * @param n Le nombre dont calculer la factorielle.
      * @return La factorielle du nombre passé en paramètre.
+     * @throws ArithmeticException Si le résultat dépasse la capacité d'un long (n > 20).
      */
     public static long factorielle (int n) {
         int i;
         long res = 1L;
         for ( i = 1; i <= n; i++ ) {
-                res = res * (long) i;
+                res = Math.multiplyExact(res, (long) i);
         }
         return res;
     }
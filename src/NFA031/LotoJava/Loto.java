@@ -1,7 +1,14 @@
 package NFA031.LotoJava;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.util.Locale;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Classe principale du jeu de Loto.
@@ -17,6 +24,14 @@ public class Loto {
         0.3372F, 
         0.1887F
     };
+    /** Parts des mises en décimal exact (PARTS_MISES sans l'erreur d'arrondi des float). */
+    public final static BigDecimal PARTS_MISES_EXACTES[] = new BigDecimal[PARTS_MISES.length];
+    static {
+        byte b;
+        for ( b = 0; b < PARTS_MISES.length; b++ ) {
+            PARTS_MISES_EXACTES[b] = new BigDecimal(Float.toString(PARTS_MISES[b]));
+        }
+    }
     /** Rang dont les gagnants de certains rangs prennent aussi les gains. */
     public final static byte RANG_CHANCE = 6;
     /** Rangs ayant une part du rang "Chance" dans leur gains. */
@@ -26,164 +41,274 @@ public class Loto {
         11  // Rangs 5 et 6 (2 n° + 1 n° chance)
     };
     
-    private static int compteurBulletins = 1;
+    /** Version du règlement appliqué (enregistrée dans les archives de tirage). */
+    public final static short VERSION_REGLES = 1;
+    
+    private static long compteurBulletins = 1L;
     
+    /**
+     * Point d'entrée du programme.
+     * Avec des options (voir DrawOptions.USAGE), le tirage est exécuté sans saisie.
+     * Sinon, les paramètres sont demandés sur l'entrée standard.
+     * @param args Options; ou, en mode interactif: graine du tirage en premier argument (facultatif),
+     * pour rejouer un tirage à l'identique; nombre de tirages à simuler en second argument
+     * (facultatif, mode simulation de Monte Carlo).
+     */
     public static void main (String args[]) {
-        int i, nbBulletins;
-        byte b, j, nbGrillesBulletin, rang;
-        long nbGrilles = 0;
-        double gain;
-        Bulletin bulletins[];                   // Bulletins générés pour le jeu.
-        Grille gagnante;                        // Grille gagnante.
-        long totalMisesTirage = 0L;             // Total des sommes misées
-        double remisEnJeu;                      // Somme misée mais non gagnée
-        double misesParRang[] = new double[6];  // Totaux des parts des rangs calculés
-        int gagnantsParRang[] = new int[6];     // Totaux des nombres de grilles gagnantes par rang
+        DrawOptions options;
+        
+        try {
+            if ( DrawOptions.sontDesOptions(args) ) {
+                options = DrawOptions.lire(args);
+            } else {
+                options = Loto.saisirOptions(args);
+            }
+        } catch ( IllegalArgumentException e ) {
+            System.err.println(e.getMessage());
+            System.err.println(DrawOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+        if ( options.isAide() ) {
+            System.out.println(DrawOptions.USAGE);
+        } else if ( options.getPortServeur() >= 0 ) {
+            Loto.servir(options.getPortServeur());
+        } else {
+            Loto.executer(options);
+        }
+    }
+    
+    /**
+     * Demande les paramètres du tirage sur l'entrée standard.
+     * Les arguments sont vérifiés avant toute saisie.
+     * @param args Graine du tirage (facultatif), puis nombre de tirages à simuler (facultatif).
+     * @return Les options correspondantes.
+     * @throws IllegalArgumentException Si la graine ou le nombre de tirages fourni n'est pas valide.
+     */
+    private static DrawOptions saisirOptions ( String args[] ) {
+        long nbBulletins = 0L;
+        Long graine = null;                     // Graine du tirage (null: tirée au hasard)
+        int nbTirages = 0;                      // Nombre de tirages à simuler (0: tirage unique)
         String dateSaisie;                      // Date du tirage
-        long debutExec, tpsExec;
-        boolean verbeux = true;
         char v = '\0';
+        StringBuilder options = new StringBuilder();
+        Scanner input;
         
-        Scanner input = new Scanner(System.in);
+        // Graine du tirage: fournie en argument (sinon tirée au hasard)
+        if ( args.length > 0 ) {
+            try {
+                graine = Long.parseLong(args[0]);
+            } catch ( NumberFormatException e ) {
+                throw new IllegalArgumentException("La graine fournie (" + args[0] + ") n'est pas un entier.");
+            }
+        }
+        // Nombre de tirages indépendants à simuler
+        if ( args.length > 1 ) {
+            try {
+                nbTirages = Integer.parseInt(args[1]);
+            } catch ( NumberFormatException e ) {
+                throw new IllegalArgumentException("Le nombre de tirages fourni (" + args[1] + ") n'est pas un entier.");
+            }
+            if ( nbTirages < 1 ) {
+                throw new IllegalArgumentException("Le nombre de tirages fourni (" + nbTirages + ") "
+                        + "est inférieur au minimum (1).");
+            }
+        }
+        
+        input = new Scanner(System.in);
         
         // Saisie du nombre de bulletins à créer
         System.out.println("========== LOTO ==========");
         do {
-            System.out.print("Nombre de bulletins à créer (de 1 à 1000000): ");
-            nbBulletins = input.nextInt();
-        } while ( nbBulletins <= 0 && nbBulletins > 1000000 );
-        bulletins = new Bulletin[nbBulletins];
+            System.out.print("Nombre de bulletins à créer (1 au minimum): ");
+            if ( input.hasNextLong() ) {
+                nbBulletins = input.nextLong();
+            } else {
+                input.next();   // Saisie non numérique: ignorée
+            }
+        } while ( nbBulletins <= 0 );
+        options.append("-n ").append(nbBulletins);
         
         // Saisie de la date
         do {
             System.out.print("Saisir la date du tirage (dd-mm-yyyy): ");
             dateSaisie = input.next();
         } while ( !isDateValide(dateSaisie) );
+        options.append(" -d ").append(dateSaisie);
         
-        // Mode verbeux (affichage des bulletins)
-        do {
-            System.out.print("Mode verbeux (o/n) ? ");
-            v = input.next().toLowerCase().charAt(0);
-        } while ( v != 'o' && v != 'n' );
-        if ( v == 'n' ) {
-            verbeux = false;
+        if ( graine != null ) {
+            options.append(" -s ").append(graine);
         }
         
-        // Tirage de la grille gagnante
-        gagnante = new Grille();
-        if ( verbeux ) {
-            System.out.println("\n******************** Grille gagnante ********************");
-            System.out.println("\t" + gagnante + "\n");
+        // Simulation de plusieurs tirages indépendants
+        if ( nbTirages > 0 ) {
+            options.append(" --tirages ").append(nbTirages);
+        } else {
+            // Mode verbeux (affichage des bulletins)
+            do {
+                System.out.print("Mode verbeux (o/n) ? ");
+                v = input.next().toLowerCase().charAt(0);
+            } while ( v != 'o' && v != 'n' );
+            if ( v == 'o' ) {
+                options.append(" -v");
+            }
         }
         
-        // Création des bulletins
-        debutExec = System.currentTimeMillis();
-        for ( i = 0; i < nbBulletins; i++ ) {
-            bulletins[i] = new Bulletin(Loto.compteurBulletins++, (byte) 0, gagnante);
-            
-            totalMisesTirage += bulletins[i].getTotalMises();
-            nbGrillesBulletin = bulletins[i].getNombreGrilles();
-            for ( b = 0; b < nbGrillesBulletin; b++ ) {
-                rang = bulletins[i].getGrilles()[b].getRang();
-                if ( rang > 0 ) {
-                    // Rangs complémentaires: 9 (3+6), 10 (4+6), 11 (5+6): les grilles sont comptées dans deux rangs
-                    if ( rang >= Loto.RANGS_COMPLEMENTAIRES[0] 
-                            && rang <= Loto.RANGS_COMPLEMENTAIRES[Loto.RANGS_COMPLEMENTAIRES.length-1] ) {
-                        gagnantsParRang[rang-Loto.RANG_CHANCE-1]++;
-                        gagnantsParRang[Loto.RANG_CHANCE-1]++;
-                    } else {
-                        // Rangs "simples" (1 à 6)
-                        gagnantsParRang[rang-1]++;
-                    }
+        return DrawOptions.lire(options.toString().split(" "));
+    }
+    
+    /**
+     * Exécute un tirage (ou une simulation de plusieurs tirages) et affiche ses résultats.
+     * @param options Les options du tirage.
+     */
+    private static void executer ( DrawOptions options ) {
+        long graine;                            // Graine du tirage.
+        DrawRunner tirage;                      // Exécution du tirage.
+        DrawResult resultat;                    // Résultat du tirage.
+        DrawMetrics metriques = null;           // Métriques d'exécution du tirage.
+        BulletinRenderer rendu = null;          // Mise en forme des bulletins (mode verbeux).
+        ArchiveWriter archive = null;           // Archive des grilles du tirage.
+        Consumer<Bulletin> sortie = null;       // Destination des bulletins générés.
+        MonteCarloSimulator simulateur;         // Simulation de plusieurs tirages.
+        ForkJoinPool pool;
+        double gagnantsAttendus[];              // Nombres de combinaisons gagnantes attendus par rang
+        double misesAttendues[];                // Parts des mises attendues par rang
+        long debutExec;
+        byte b;
+        
+        // Graine du tirage: fournie en option, ou tirée au hasard
+        if ( options.getGraine() != null ) {
+            graine = options.getGraine();
+        } else {
+            graine = new SplittableRandomSource().nextLong();
+        }
+        
+        // Simulation de plusieurs tirages indépendants
+        if ( options.getNbTirages() > 0 ) {
+            debutExec = System.nanoTime();
+            System.out.println("Date du tirage: " + (options.getDate() != null ? options.getDate() : "-"));
+            System.out.println("Graine de la simulation: " + graine);
+            System.out.println("Nombre de bulletins par tirage: " + options.getNbBulletins());
+            pool = options.getNbThreads() > 0 ? new ForkJoinPool(options.getNbThreads()) : ForkJoinPool.commonPool();
+            try {
+                simulateur = new MonteCarloSimulator(graine, options.getNbBulletins(), SplittableRandomSource::new, pool);
+                System.out.print(simulateur.simuler(options.getNbTirages()));
+            } finally {
+                if ( pool != ForkJoinPool.commonPool() ) {
+                    pool.shutdown();
                 }
             }
-            
-            nbGrilles += bulletins[i].getNombreGrilles();
-            if ( verbeux ) {
-                System.out.print(bulletins[i]);
+            // Valeurs théoriques, pour comparaison avec la simulation
+            gagnantsAttendus = AnalyticEngine.getGagnantsAttendus(options.getNbBulletins());
+            misesAttendues = AnalyticEngine.getMisesAttendues(options.getNbBulletins());
+            System.out.println("Valeurs attendues par tirage (calcul exact): ");
+            System.out.println("Total des mises: " + String.format(Locale.ROOT, "%.2f", 
+                                    AnalyticEngine.getTotalMisesAttendu(options.getNbBulletins())) + " €");
+            for ( b = 0; b < gagnantsAttendus.length; b++ ) {
+                System.out.println("Rang " + (b+1) + ": " + String.format(Locale.ROOT, "%.2f combinaisons, %.2f €",
+                                    gagnantsAttendus[b], misesAttendues[b]));
             }
+            afficherTempsExecution(System.nanoTime() - debutExec);
+            return;
         }
-        remisEnJeu = totalMisesTirage;
-        
-        // Calcul des totaux du jeu.
-        System.out.println("Date du tirage: " + dateSaisie);
-        System.out.println("Nombre total de bulletins joués: " + nbBulletins);
-        System.out.println("Nombre total de grilles jouées: " + nbGrilles);
-        System.out.println("Total des mises jouées: " + totalMisesTirage + " €.");
         
-        // Gains totaux par rang
-        System.out.println("Répartition des gains totaux: ");
-        for ( b = 0; b < PARTS_MISES.length; b++ ) {
-            misesParRang[b] = (double) (Math.round(PARTS_MISES[b] * totalMisesTirage * 100.0D)) / 100.0D;
-            System.out.println("Rang " + (b+1) + ": " + misesParRang[b] + " €");
+        // Préparation du tirage (grille gagnante tirée dès maintenant)
+        tirage = new DrawRunner(graine);
+        tirage.setDate(options.getDate());
+        tirage.setPremierId(Loto.compteurBulletins);
+        tirage.setNbThreads(options.getNbThreads());
+        if ( options.isMetriques() ) {
+            metriques = new DrawMetrics();
+            metriques.enregistrer(options.getDate() != null ? options.getDate() : Long.toString(graine));
+            tirage.setMetriques(metriques);
         }
-        
-        // Affichage du nombre de bulletins et des gains par bulletin, par rang
-        System.out.println("Gains des grilles gagnantes par rang: ");
-        for ( b = 0; b < gagnantsParRang.length; b++ ) {
-            System.out.print("Rang " + (b+1) + ": " + gagnantsParRang[b]);
-            if ( gagnantsParRang[b] > 0 ) {     // Affichage des gains par bulletin
-                gain = misesParRang[b]/gagnantsParRang[b];
-                remisEnJeu -= misesParRang[b];
-                System.out.print("\t-> " + (double) (Math.round(gain*100.0D))/100.0D + " €\tpar grille");
+        if ( options.isVerbeux() ) {
+            System.out.println("\n******************** Grille gagnante ********************");
+            System.out.println("\t" + tirage.getGagnante() + "\n");
+            // Génération dans le thread courant pour afficher les bulletins dans l'ordre, au fil de l'eau
+            rendu = new BulletinRenderer(new OutputStreamWriter(System.out));
+            sortie = rendu;
+        }
+        if ( options.getArchive() != null ) {
+            try {
+                archive = new ArchiveWriter(Paths.get(options.getArchive()),
+                        options.getDate() != null ? DateTirage.depuis(options.getDate()) : null, graine);
+            } catch ( IOException e ) {
+                System.err.println("Création de l'archive impossible: " + e.getMessage());
+                System.exit(1);
+                return;
             }
-            System.out.print("\n");
+            sortie = sortie != null ? sortie.andThen(archive) : archive;
         }
+        tirage.setSortie(sortie);
         
-        System.out.print("\nMises non remportées: " + (double) (Math.round(remisEnJeu*100.0D))/100.0D + " €\n");
+        // Création des bulletins
+        resultat = tirage.executer(options.getNbBulletins());
+        if ( rendu != null ) {
+            rendu.flush();
+        }
+        if ( archive != null ) {
+            try {
+                archive.close();
+            } catch ( IOException e ) {
+                System.err.println("Écriture de l'archive impossible: " + e.getMessage());
+                System.exit(1);
+                return;
+            }
+        }
+        Loto.compteurBulletins += options.getNbBulletins();
         
-        // Affichage du temps d'exécution
-        tpsExec = System.currentTimeMillis() - debutExec;
+        // Affichage des résultats
+        if ( options.getFormat().equals(DrawOptions.FORMAT_JSON) ) {
+            System.out.println(resultat.toJson());
+        } else {
+            System.out.print(resultat);
+            afficherTempsExecution(resultat.getDureeNs());
+            if ( metriques != null ) {
+                System.out.println("Métriques: " + metriques.toJson());
+            }
+        }
+        if ( metriques != null ) {
+            metriques.close();
+        }
+    }
+    
+    /**
+     * Démarre le serveur de tirages et répond aux demandes jusqu'à l'arrêt du programme.
+     * @param port Le port d'écoute local (0 pour un port libre).
+     */
+    private static void servir ( int port ) {
+        try ( DrawServer serveur = new DrawServer(port, DrawServer.NB_TIRAGES_DEFAUT) ) {
+            serveur.prechauffer();
+            System.out.println("Serveur de tirages à l'écoute sur le port " + serveur.getPort()
+                    + " (" + DrawServer.NB_TIRAGES_DEFAUT + " tirages simultanés).");
+            serveur.servir();
+        } catch ( IOException e ) {
+            System.err.println("Serveur de tirages: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Affiche le temps d'exécution.
+     * @param dureeNs La durée en nanosecondes.
+     */
+    private static void afficherTempsExecution ( long dureeNs ) {
         System.out.println("**********\nTemps d'exécution: " + String.format("%d min., %d sec.", 
-                                TimeUnit.MILLISECONDS.toMinutes(tpsExec),
-                                TimeUnit.MILLISECONDS.toSeconds(tpsExec) - 
-                                TimeUnit.MINUTES.toSeconds(TimeUnit.MILLISECONDS.toMinutes(tpsExec))
+                                TimeUnit.NANOSECONDS.toMinutes(dureeNs),
+                                TimeUnit.NANOSECONDS.toSeconds(dureeNs) - 
+                                TimeUnit.MINUTES.toSeconds(TimeUnit.NANOSECONDS.toMinutes(dureeNs))
                             ));
-        
     }
     
     /**
      * Valide une date saisie sous le format "dd-mm-yyyy" ou "dd-mm-yy"
+     * (lecture sans allocation, voir DateTirage.lire()).
      * @param date
      * @return True si la date saisie est valide.
      */
     public static boolean isDateValide ( String date ) {
-        boolean ret = false;
-        byte mois[] = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };   // Pour les années non-bissextiles
-        byte d, m;
-        short y;
-        
-        
-        if ( date.length() == 8 || date.length() == 10 ) {          // Taille de la chaîne
-            if ( date.charAt(2) == '-' && date.charAt(5) == '-' ) { // Présence des tirets au bon endroit
-                try {   // Les parses peuvent lancer des exceptions
-                    d = Byte.parseByte(date.substring(0, 2));
-                    m = Byte.parseByte(date.substring(3, 5));
-                    y = Short.parseShort(date.substring(6));
-
-                    if ( y < 100 ) {        // Cas de l'année sur deux chiffres
-                        if ( y >= 70 ) {    // On assume le calendrier à partir de 1970
-                            y += 1900;
-                        } else {
-                            y += 2000;
-                        }
-                    }
-                    if ( isBissextile(y) ) {    // Année bissextile: on ajoute un jour à Février
-                        mois[1]++;
-                    }
-
-                    if ( m >= 1 && m <= 12 ) {              // Vérif. du mois (1 à 12)
-                        if ( d <= mois[m-1] && d >= 1 ) {   // Vérif. du jour (1 à 28/29/30/31)
-                            ret = true;
-                        }
-                    }
-                } catch ( NumberFormatException e ) {
-                    // d, m & y n'ont pas pu être parsés (la date ne contenait pas de chiffres valides)
-                }
-            }
-        }
-        
-        return ret;
+        return DateTirage.lire(date) != DateTirage.INVALIDE;
     }
     
     /**
@@ -0,0 +1,147 @@
+package NFA031.LotoJava;
+
+import java.util.Locale;
+
+/**
+ * Statistiques de plusieurs tirages indépendants: pour chaque rang, le nombre
+ * de combinaisons gagnantes, la part des mises et le gain par combinaison,
+ * ainsi que le total des mises de chaque tirage.
+ * Les résultats partiels calculés séparément peuvent être fusionnés.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class MonteCarloResult {
+
+    // Nombre de combinaisons gagnantes par rang
+    private final RunningStats gagnantsParRang[] = new RunningStats[Loto.PARTS_MISES.length];
+    // Part des mises par rang
+    private final RunningStats misesParRang[] = new RunningStats[Loto.PARTS_MISES.length];
+    // Gain par combinaison gagnante (tirages ayant au moins un gagnant du rang)
+    private final RunningStats gainsParRang[] = new RunningStats[Loto.PARTS_MISES.length];
+    // Total des mises de chaque tirage
+    private final RunningStats totalMises = new RunningStats();
+
+    /** Constructeur: statistiques vides. */
+    public MonteCarloResult () {
+        byte b;
+
+        for ( b = 0; b < Loto.PARTS_MISES.length; b++ ) {
+            this.gagnantsParRang[b] = new RunningStats();
+            this.misesParRang[b] = new RunningStats();
+            this.gainsParRang[b] = new RunningStats();
+        }
+    }
+
+    /**
+     * Ajoute les totaux d'un tirage aux statistiques.
+     * @param totaux Les totaux du tirage.
+     */
+    public void ajouterTirage ( DrawTotals totaux ) {
+        long gagnants[] = totaux.getGagnantsParRang();
+        double mises[] = totaux.getMisesParRang();
+        byte b;
+
+        this.totalMises.ajouter(totaux.getTotalMises());
+        for ( b = 0; b < gagnants.length; b++ ) {
+            this.gagnantsParRang[b].ajouter(gagnants[b]);
+            this.misesParRang[b].ajouter(mises[b]);
+            if ( gagnants[b] > 0 ) {
+                this.gainsParRang[b].ajouter(mises[b] / gagnants[b]);
+            }
+        }
+    }
+
+    /**
+     * Ajoute des résultats partiels à ceux-ci.
+     * @param autres Les résultats à ajouter.
+     */
+    public void fusionner ( MonteCarloResult autres ) {
+        byte b;
+
+        this.totalMises.fusionner(autres.totalMises);
+        for ( b = 0; b < this.gagnantsParRang.length; b++ ) {
+            this.gagnantsParRang[b].fusionner(autres.gagnantsParRang[b]);
+            this.misesParRang[b].fusionner(autres.misesParRang[b]);
+            this.gainsParRang[b].fusionner(autres.gainsParRang[b]);
+        }
+    }
+
+    /**
+     * Retourne le nombre de tirages comptés.
+     * @return Le nombre de tirages.
+     */
+    public long getNbTirages() {
+        return this.totalMises.getNb();
+    }
+
+    /**
+     * Retourne les statistiques du total des mises par tirage.
+     * @return Les statistiques des mises.
+     */
+    public RunningStats getTotalMises() {
+        return this.totalMises;
+    }
+
+    /**
+     * Retourne les statistiques du nombre de combinaisons gagnantes d'un rang.
+     * @param rang Le rang (de 1 à 6).
+     * @return Les statistiques du rang.
+     */
+    public RunningStats getGagnants ( int rang ) {
+        return this.gagnantsParRang[rang - 1];
+    }
+
+    /**
+     * Retourne les statistiques de la part des mises d'un rang.
+     * @param rang Le rang (de 1 à 6).
+     * @return Les statistiques du rang.
+     */
+    public RunningStats getMises ( int rang ) {
+        return this.misesParRang[rang - 1];
+    }
+
+    /**
+     * Retourne les statistiques du gain par combinaison d'un rang,
+     * sur les seuls tirages ayant eu au moins un gagnant de ce rang.
+     * @param rang Le rang (de 1 à 6).
+     * @return Les statistiques du rang.
+     */
+    public RunningStats getGains ( int rang ) {
+        return this.gainsParRang[rang - 1];
+    }
+
+    /** Rapport des statistiques: moyenne ± intervalle à 95%, médiane, quantiles 5% et 95%. */
+    @Override
+    public String toString () {
+        StringBuilder texte = new StringBuilder();
+        byte b;
+
+        texte.append("Nombre de tirages simulés: ").append(this.getNbTirages()).append('\n');
+        ligne(texte, "Total des mises", this.totalMises);
+        texte.append("Combinaisons gagnantes par rang:\n");
+        for ( b = 0; b < this.gagnantsParRang.length; b++ ) {
+            ligne(texte, "Rang " + (b + 1), this.gagnantsParRang[b]);
+        }
+        texte.append("Gains totaux par rang (€):\n");
+        for ( b = 0; b < this.misesParRang.length; b++ ) {
+            ligne(texte, "Rang " + (b + 1), this.misesParRang[b]);
+        }
+        texte.append("Gains par combinaison (€), tirages avec gagnant:\n");
+        for ( b = 0; b < this.gainsParRang.length; b++ ) {
+            ligne(texte, "Rang " + (b + 1) + " (" + this.gainsParRang[b].getNb() + " tirages)", this.gainsParRang[b]);
+        }
+        return texte.toString();
+    }
+
+    /** Ajoute au rapport la ligne d'une série. */
+    private static void ligne ( StringBuilder texte, String nom, RunningStats stats ) {
+        texte.append(nom).append(": ");
+        if ( stats.getNb() == 0 ) {
+            texte.append("-\n");
+        } else {
+            texte.append(String.format(Locale.ROOT, "%.2f ± %.2f\t(médiane %.2f, 5%%: %.2f, 95%%: %.2f)%n",
+                    stats.getMoyenne(), stats.getNb() > 1 ? stats.getDemiIntervalle95() : 0.0D,
+                    stats.getQuantile(0.5D), stats.getQuantile(0.05D), stats.getQuantile(0.95D)));
+        }
+    }
+
+}
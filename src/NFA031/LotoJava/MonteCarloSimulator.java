@@ -0,0 +1,122 @@
+package NFA031.LotoJava;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongFunction;
+
+/**
+ * Simulateur de Monte Carlo: répète des tirages indépendants (grille gagnante
+ * et bulletins) et agrège leurs totaux dans des statistiques fusionnables.
+ * Les tirages sont répartis sur le pool fork/join; chaque découpage sépare la
+ * source aléatoire comme dans DrawEngine, si bien que les résultats ne dépendent
+ * que de la graine. Chaque tirage est résumé puis abandonné: la mémoire
+ * utilisée ne dépend pas du nombre de tirages.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class MonteCarloSimulator {
+
+    // Graine dont dérivent les sources aléatoires des tirages
+    private final long graine;
+    // Nombre de bulletins joués à chaque tirage
+    private final long nbBulletins;
+    // Fabrique de la source aléatoire racine à partir de la graine
+    private final LongFunction<RandomSource> fabrique;
+    // Pool d'exécution des tâches
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructeur: simulateur utilisant le pool commun.
+     * @param graine La graine de la simulation.
+     * @param nbBulletins Le nombre de bulletins joués à chaque tirage.
+     */
+    public MonteCarloSimulator ( long graine, long nbBulletins ) {
+        this( graine, nbBulletins, SplittableRandomSource::new, ForkJoinPool.commonPool() );
+    }
+
+    /**
+     * Constructeur.
+     * @param graine La graine de la simulation.
+     * @param nbBulletins Le nombre de bulletins joués à chaque tirage.
+     * @param fabrique La fabrique de la source aléatoire racine à partir de la graine.
+     * @param pool Le pool d'exécution des tâches.
+     * @throws IllegalArgumentException Si le nombre de bulletins est négatif.
+     * @throws NullPointerException Si la fabrique ou le pool fourni est nul.
+     */
+    public MonteCarloSimulator ( long graine, long nbBulletins, LongFunction<RandomSource> fabrique, ForkJoinPool pool ) {
+        if ( nbBulletins < 0 ) {
+            throw new IllegalArgumentException("Le nombre de bulletins (" + nbBulletins + ") est négatif.");
+        }
+        if ( fabrique != null && pool != null ) {
+            this.graine = graine;
+            this.nbBulletins = nbBulletins;
+            this.fabrique = fabrique;
+            this.pool = pool;
+        } else {
+            throw new NullPointerException("La fabrique ou le pool d'exécution fourni est nul !");
+        }
+    }
+
+    /**
+     * Simule des tirages indépendants sur tous les cœurs disponibles.
+     * @param nbTirages Le nombre de tirages à simuler.
+     * @return Les statistiques des tirages.
+     * @throws IllegalArgumentException Si le nombre de tirages est négatif.
+     */
+    public MonteCarloResult simuler ( int nbTirages ) {
+        if ( nbTirages < 0 ) {
+            throw new IllegalArgumentException("Le nombre de tirages (" + nbTirages + ") est négatif.");
+        }
+        return this.pool.invoke(new TacheTirages(this, 0, nbTirages, this.fabrique.apply(this.graine)));
+    }
+
+    /**
+     * Simule un tirage complet: grille gagnante puis bulletins, dans le thread courant.
+     * @param r La source aléatoire du tirage.
+     * @return Les totaux du tirage.
+     */
+    private DrawTotals tirer ( RandomSource r ) {
+        Grille gagnante = new Grille(Grille.NB_NUMEROS_MIN, Grille.CHANCE_NB_NUMEROS_MIN, r);
+        DrawEngine moteur = new DrawEngine(r.nextLong(), this.fabrique, this.pool);
+        return moteur.executerSequentiel(1, this.nbBulletins, gagnante, null);
+    }
+
+    /**
+     * Tâche fork/join traitant une plage de tirages, avec ses propres statistiques et sa propre source.
+     */
+    @SuppressWarnings("serial")  // Tâche jamais sérialisée
+    private static class TacheTirages extends RecursiveTask<MonteCarloResult> {
+
+        private final MonteCarloSimulator simulateur;
+        private final int debut, fin;
+        private final RandomSource source;
+
+        TacheTirages ( MonteCarloSimulator simulateur, int debut, int fin, RandomSource source ) {
+            this.simulateur = simulateur;
+            this.debut = debut;
+            this.fin = fin;
+            this.source = source;
+        }
+
+        @Override
+        protected MonteCarloResult compute () {
+            MonteCarloResult resultat;
+
+            if ( this.fin - this.debut <= 1 ) {
+                resultat = new MonteCarloResult();
+                if ( this.fin > this.debut ) {
+                    resultat.ajouterTirage(this.simulateur.tirer(this.source));
+                }
+            } else {
+                // Découpage en deux moitiés, la gauche reçoit une source séparée de celle-ci
+                int milieu = (this.debut + this.fin) >>> 1;
+                TacheTirages gauche = new TacheTirages(this.simulateur, this.debut, milieu, this.source.split());
+                TacheTirages droite = new TacheTirages(this.simulateur, milieu, this.fin, this.source);
+                gauche.fork();
+                resultat = droite.compute();
+                resultat.fusionner(gauche.join());
+            }
+            return resultat;
+        }
+    }
+
+}
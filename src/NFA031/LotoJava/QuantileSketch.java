@@ -0,0 +1,139 @@
+package NFA031.LotoJava;
+
+/**
+ * Esquisse de quantiles à précision relative bornée (principe de DDSketch).
+ * Chaque valeur positive est comptée dans une case logarithmique: les cases
+ * couvrent [gamma^(i-1), gamma^i[, si bien que tout quantile est rendu avec une
+ * erreur relative d'au plus PRECISION. Seule la plage de cases réellement
+ * atteinte est allouée, et elle est bornée par VALEUR_MIN et VALEUR_MAX
+ * (mémoire constante quel que soit le nombre de valeurs). Deux esquisses se
+ * fusionnent en additionnant leurs cases.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class QuantileSketch {
+
+    /** Erreur relative maximale des quantiles rendus. */
+    public final static double PRECISION = 0.01D;
+    /** Plus petite valeur positive distinguée (les valeurs inférieures sont ramenées à celle-ci). */
+    public final static double VALEUR_MIN = 1e-2D;
+    /** Plus grande valeur distinguée (les valeurs supérieures sont ramenées à celle-ci). */
+    public final static double VALEUR_MAX = 1e13D;
+
+    // Raison des cases: gamma = (1 + a) / (1 - a)
+    private final static double GAMMA = (1.0D + PRECISION) / (1.0D - PRECISION);
+    private final static double LOG_GAMMA = Math.log(GAMMA);
+    // Index logarithmiques extrêmes
+    private final static int INDEX_MIN = index(VALEUR_MIN);
+    private final static int INDEX_MAX = index(VALEUR_MAX);
+
+    // Comptes par case logarithmique, de l'index premiereCase à premiereCase + cases.length - 1
+    private long cases[] = new long[0];
+    // Index logarithmique de la première case allouée
+    private int premiereCase = 0;
+    // Nombre de valeurs nulles
+    private long nbZeros = 0L;
+    // Nombre total de valeurs
+    private long nb = 0L;
+
+    /** Index logarithmique (non décalé) d'une valeur strictement positive. */
+    private static int index ( double valeur ) {
+        return (int) Math.ceil(Math.log(valeur) / LOG_GAMMA);
+    }
+
+    /**
+     * Ajoute une valeur à l'esquisse.
+     * @param valeur La valeur (positive ou nulle).
+     * @throws IllegalArgumentException Si la valeur est négative ou n'est pas un nombre.
+     */
+    public void ajouter ( double valeur ) {
+        if ( valeur > 0.0D ) {
+            int i = index(Math.min(Math.max(valeur, VALEUR_MIN), VALEUR_MAX));
+            this.etendre(i, i);
+            this.cases[i - this.premiereCase]++;
+        } else if ( valeur == 0.0D ) {
+            this.nbZeros++;
+        } else {
+            throw new IllegalArgumentException("La valeur fournie (" + valeur + ") est négative.");
+        }
+        this.nb++;
+    }
+
+    /**
+     * Ajoute les valeurs d'une autre esquisse à celle-ci.
+     * @param autre L'esquisse à ajouter.
+     */
+    public void fusionner ( QuantileSketch autre ) {
+        int i;
+
+        if ( autre.cases.length > 0 ) {
+            this.etendre(autre.premiereCase, autre.premiereCase + autre.cases.length - 1);
+            for ( i = 0; i < autre.cases.length; i++ ) {
+                this.cases[autre.premiereCase - this.premiereCase + i] += autre.cases[i];
+            }
+        }
+        this.nbZeros += autre.nbZeros;
+        this.nb += autre.nb;
+    }
+
+    /**
+     * Agrandit la plage des cases allouées pour couvrir des index donnés.
+     * @param debut Le premier index à couvrir.
+     * @param fin Le dernier index à couvrir.
+     */
+    private void etendre ( int debut, int fin ) {
+        int premiere, derniere;
+        long nouvelles[];
+
+        if ( this.cases.length == 0 ) {
+            this.premiereCase = debut;
+            this.cases = new long[fin - debut + 1];
+        } else if ( debut < this.premiereCase || fin >= this.premiereCase + this.cases.length ) {
+            // Marge proportionnelle pour limiter les recopies, dans les limites de l'esquisse
+            premiere = Math.min(debut, this.premiereCase);
+            derniere = Math.max(fin, this.premiereCase + this.cases.length - 1);
+            premiere = Math.max(INDEX_MIN, premiere - (debut < this.premiereCase ? this.cases.length >> 1 : 0));
+            derniere = Math.min(INDEX_MAX, derniere + (fin >= this.premiereCase + this.cases.length ? this.cases.length >> 1 : 0));
+            nouvelles = new long[derniere - premiere + 1];
+            System.arraycopy(this.cases, 0, nouvelles, this.premiereCase - premiere, this.cases.length);
+            this.cases = nouvelles;
+            this.premiereCase = premiere;
+        }
+    }
+
+    /**
+     * Retourne le nombre de valeurs de l'esquisse.
+     * @return Le nombre de valeurs.
+     */
+    public long getNb() {
+        return this.nb;
+    }
+
+    /**
+     * Retourne une estimation d'un quantile.
+     * @param q Le quantile demandé (de 0 à 1, 0.5 pour la médiane).
+     * @return La valeur estimée, ou NaN si l'esquisse est vide.
+     * @throws IllegalArgumentException Si q n'est pas compris entre 0 et 1.
+     */
+    public double getQuantile ( double q ) {
+        long rang, cumul;
+        int i;
+
+        if ( !(q >= 0.0D && q <= 1.0D) ) {
+            throw new IllegalArgumentException("Le quantile demandé (" + q + ") est hors limites (de 0 à 1).");
+        }
+        if ( this.nb == 0 ) {
+            return Double.NaN;
+        }
+        rang = (long) (q * (this.nb - 1));
+        if ( rang < this.nbZeros ) {
+            return 0.0D;
+        }
+        cumul = this.nbZeros;
+        for ( i = 0; i < this.cases.length - 1 && cumul + this.cases[i] <= rang; i++ ) {
+            cumul += this.cases[i];
+        }
+        // Milieu de la case [gamma^(k-1), gamma^k[ au sens de l'erreur relative
+        return 2.0D * Math.pow(GAMMA, i + this.premiereCase) / (GAMMA + 1.0D);
+    }
+
+}
@@ -0,0 +1,31 @@
+package NFA031.LotoJava;
+
+/**
+ * Source de nombres aléatoires utilisée pour la génération des grilles.
+ * Une source n'est pas partagée entre threads: chaque tâche de génération
+ * obtient la sienne par split(), ce qui rend un tirage reproductible à
+ * l'identique à partir de sa graine.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public interface RandomSource {
+
+    /**
+     * Tire un entier uniformément entre 0 (inclus) et une borne (exclue).
+     * @param borne La borne supérieure exclue, strictement positive.
+     * @return Un entier de 0 à borne-1.
+     */
+    int nextInt ( int borne );
+
+    /**
+     * Tire un entier long uniformément.
+     * @return Un entier long aléatoire.
+     */
+    long nextLong ();
+
+    /**
+     * Crée une nouvelle source indépendante, dérivée de façon déterministe de celle-ci.
+     * @return La nouvelle source.
+     */
+    RandomSource split ();
+
+}
@@ -0,0 +1,129 @@
+package NFA031.LotoJava;
+
+/**
+ * Statistiques courantes d'une série de valeurs: nombre, moyenne, variance,
+ * minimum, maximum et quantiles (esquisse), en mémoire constante.
+ * La moyenne et la variance sont tenues par l'algorithme de Welford, et deux
+ * séries calculées séparément se fusionnent exactement (formule de Chan).
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class RunningStats {
+
+    /** Quantile de la loi normale pour un intervalle de confiance à 95%. */
+    public final static double Z_95 = 1.959963984540054D;
+
+    // Nombre de valeurs
+    private long nb = 0L;
+    // Moyenne courante
+    private double moyenne = 0.0D;
+    // Somme des carrés des écarts à la moyenne
+    private double m2 = 0.0D;
+    // Extrêmes
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    // Esquisse des quantiles
+    private final QuantileSketch quantiles = new QuantileSketch();
+
+    /**
+     * Ajoute une valeur à la série.
+     * @param valeur La valeur (positive ou nulle).
+     */
+    public void ajouter ( double valeur ) {
+        double ecart = valeur - this.moyenne;
+
+        this.quantiles.ajouter(valeur);
+        this.nb++;
+        this.moyenne += ecart / this.nb;
+        this.m2 += ecart * (valeur - this.moyenne);
+        this.min = Math.min(this.min, valeur);
+        this.max = Math.max(this.max, valeur);
+    }
+
+    /**
+     * Ajoute une série calculée séparément à celle-ci.
+     * @param autres Les statistiques à ajouter.
+     */
+    public void fusionner ( RunningStats autres ) {
+        long total = this.nb + autres.nb;
+        double ecart = autres.moyenne - this.moyenne;
+
+        if ( autres.nb == 0 ) {
+            return;
+        }
+        this.quantiles.fusionner(autres.quantiles);
+        this.m2 += autres.m2 + ecart * ecart * ((double) this.nb * autres.nb / total);
+        this.moyenne += ecart * autres.nb / total;
+        this.nb = total;
+        this.min = Math.min(this.min, autres.min);
+        this.max = Math.max(this.max, autres.max);
+    }
+
+    /**
+     * Retourne le nombre de valeurs de la série.
+     * @return Le nombre de valeurs.
+     */
+    public long getNb() {
+        return this.nb;
+    }
+
+    /**
+     * Retourne la moyenne de la série.
+     * @return La moyenne, ou NaN si la série est vide.
+     */
+    public double getMoyenne() {
+        return this.nb > 0 ? this.moyenne : Double.NaN;
+    }
+
+    /**
+     * Retourne la variance (non biaisée) de la série.
+     * @return La variance, ou NaN s'il y a moins de deux valeurs.
+     */
+    public double getVariance() {
+        return this.nb > 1 ? this.m2 / (this.nb - 1) : Double.NaN;
+    }
+
+    /**
+     * Retourne l'écart type de la série.
+     * @return L'écart type, ou NaN s'il y a moins de deux valeurs.
+     */
+    public double getEcartType() {
+        return Math.sqrt(this.getVariance());
+    }
+
+    /**
+     * Retourne la demi-largeur de l'intervalle de confiance à 95% de la moyenne
+     * (approximation normale: z * écart type / racine de n).
+     * @return La demi-largeur de l'intervalle, ou NaN s'il y a moins de deux valeurs.
+     */
+    public double getDemiIntervalle95() {
+        return Z_95 * this.getEcartType() / Math.sqrt(this.nb);
+    }
+
+    /**
+     * Retourne la plus petite valeur de la série.
+     * @return Le minimum, ou NaN si la série est vide.
+     */
+    public double getMin() {
+        return this.nb > 0 ? this.min : Double.NaN;
+    }
+
+    /**
+     * Retourne la plus grande valeur de la série.
+     * @return Le maximum, ou NaN si la série est vide.
+     */
+    public double getMax() {
+        return this.nb > 0 ? this.max : Double.NaN;
+    }
+
+    /**
+     * Retourne une estimation d'un quantile de la série (à 1% près en relatif).
+     * @param q Le quantile demandé (de 0 à 1, 0.5 pour la médiane).
+     * @return La valeur estimée, ou NaN si la série est vide.
+     */
+    public double getQuantile ( double q ) {
+        // L'estimation de l'esquisse est ramenée entre les extrêmes exacts
+        return this.nb > 0 ? Math.min(this.max, Math.max(this.min, this.quantiles.getQuantile(q)))
+                : this.quantiles.getQuantile(q);
+    }
+
+}
@@ -0,0 +1,44 @@
+package NFA031.LotoJava;
+
+/**
+ * Calcul scalaire des rangs d'un lot de grilles: un comptage de bits par grille,
+ * puis une lecture dans la table des rangs.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class ScalarGridScorer implements GridScorer {
+
+    // Rang par clé (numéros trouvés * 2 + numéro chance trouvé), d'après Grille.calculRangGagnant
+    static final byte RANGS[] = new byte[2 * (Grille.NB_NUMEROS_MAX + 1)];
+
+    static {
+        byte m;
+        for ( m = 0; m <= Grille.NB_NUMEROS_MAX; m++ ) {
+            RANGS[2 * m] = Grille.calculRangGagnant(m, (byte) 0);
+            RANGS[2 * m + 1] = Grille.calculRangGagnant(m, (byte) 1);
+        }
+    }
+
+    @Override
+    public void scorer ( long masquesNumeros[], short masquesNumerosChance[], int debut, int nb, Grille gagnante,
+            byte rangs[] ) {
+        scorerScalaire(masquesNumeros, masquesNumerosChance, debut, debut + nb,
+                gagnante.getMasqueNumeros(), gagnante.getMasqueNumerosChance(), rangs);
+    }
+
+    /**
+     * Boucle scalaire (partagée avec le calcul vectoriel pour les dernières grilles).
+     * @param fin L'index suivant la dernière grille.
+     * @param masque Le masque des numéros gagnants.
+     * @param masqueChance Le masque des numéros chance gagnants.
+     */
+    static void scorerScalaire ( long masquesNumeros[], short masquesNumerosChance[], int debut, int fin,
+            long masque, short masqueChance, byte rangs[] ) {
+        int i;
+
+        for ( i = debut; i < fin; i++ ) {
+            rangs[i] = RANGS[2 * Long.bitCount(masquesNumeros[i] & masque)
+                    + ( (masquesNumerosChance[i] & masqueChance) != 0 ? 1 : 0 )];
+        }
+    }
+
+}
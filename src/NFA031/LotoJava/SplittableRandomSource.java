@@ -0,0 +1,47 @@
+package NFA031.LotoJava;
+
+import java.util.SplittableRandom;
+
+/**
+ * Source aléatoire reposant sur java.util.SplittableRandom.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class SplittableRandomSource implements RandomSource {
+
+    // Générateur sous-jacent
+    private final SplittableRandom generateur;
+
+    /** Constructeur: source initialisée sans graine (non reproductible). */
+    public SplittableRandomSource () {
+        this( new SplittableRandom() );
+    }
+
+    /**
+     * Constructeur: source initialisée par une graine.
+     * @param graine La graine de la source.
+     */
+    public SplittableRandomSource ( long graine ) {
+        this( new SplittableRandom(graine) );
+    }
+
+    // Constructeur interne à partir d'un générateur existant
+    private SplittableRandomSource ( SplittableRandom generateur ) {
+        this.generateur = generateur;
+    }
+
+    @Override
+    public int nextInt ( int borne ) {
+        return this.generateur.nextInt(borne);
+    }
+
+    @Override
+    public long nextLong () {
+        return this.generateur.nextLong();
+    }
+
+    @Override
+    public RandomSource split () {
+        return new SplittableRandomSource(this.generateur.split());
+    }
+
+}
@@ -0,0 +1,183 @@
+package NFA031.LotoJava;
+
+/**
+ * Table précalculée de répartition des combinaisons gagnantes par rang.
+ * Une grille multiple de n numéros et c numéros chance équivaut à
+ * C(n, 5) * c grilles simples. Pour chaque quadruplet (numéros cochés,
+ * numéros trouvés, numéros chance cochés, numéros chance trouvés), la table
+ * donne le nombre de ces grilles simples comptées dans chaque rang de gain:
+ * classer une grille multiple revient à lire une ligne de la table.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public final class TableRangs {
+
+    /** Nombre de rangs de gain (taille d'une ligne de la table). */
+    public final static int NB_RANGS = Loto.PARTS_MISES.length;
+
+    // Dimensions de la table
+    private final static int NB_N = Grille.NB_NUMEROS_MAX + 1;
+    private final static int NB_M = Grille.NB_NUMEROS_MAX + 1;
+    private final static int NB_C = Grille.CHANCE_NB_NUMEROS_MAX + 1;
+    private final static int NB_CM = Grille.CHANCE_NB_NUMEROS_MAX + 1;
+
+    // Table aplatie: une ligne de NB_RANGS compteurs par quadruplet (n, m, c, cm)
+    private final static int REPARTITIONS[] = new int[NB_N * NB_M * NB_C * NB_CM * NB_RANGS];
+
+    static {
+        int n, m, c, cm, k, ligne;
+        long nbSimples;
+
+        for ( n = Grille.NB_NUMEROS_MIN; n < NB_N; n++ ) {
+            for ( m = 0; m <= n; m++ ) {
+                for ( c = Grille.CHANCE_NB_NUMEROS_MIN; c < NB_C; c++ ) {
+                    for ( cm = 0; cm <= c; cm++ ) {
+                        ligne = index(n, m, c, cm);
+                        // k: nombre de numéros trouvés dans une combinaison simple de 5 numéros
+                        for ( k = 0; k <= Grille.NB_NUMEROS_MIN; k++ ) {
+                            nbSimples = Combinatoire.combinaisons(m, k)
+                                    * Combinatoire.combinaisons(n - m, Grille.NB_NUMEROS_MIN - k);
+                            if ( nbSimples > 0 ) {
+                                // cm combinaisons avec le numéro chance trouvé, c-cm sans
+                                ajouterRang(REPARTITIONS, ligne,
+                                        Grille.calculRangGagnant((byte) k, (byte) 1), (int) (nbSimples * cm));
+                                ajouterRang(REPARTITIONS, ligne,
+                                        Grille.calculRangGagnant((byte) k, (byte) 0), (int) (nbSimples * (c - cm)));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // Classe utilitaire: pas d'instance
+    private TableRangs () {
+    }
+
+    /**
+     * Retourne la position de la ligne d'un quadruplet dans la table.
+     * @param nbNumeros Le nombre de numéros cochés.
+     * @param nbNumerosGagnants Le nombre de numéros trouvés.
+     * @param nbNumerosChance Le nombre de numéros chance cochés.
+     * @param nbNumerosChanceGagnants Le nombre de numéros chance trouvés.
+     * @return La position du premier compteur de la ligne.
+     */
+    public static int index ( int nbNumeros, int nbNumerosGagnants, int nbNumerosChance, int nbNumerosChanceGagnants ) {
+        return (((nbNumeros * NB_M + nbNumerosGagnants) * NB_C + nbNumerosChance) * NB_CM
+                + nbNumerosChanceGagnants) * NB_RANGS;
+    }
+
+    /**
+     * Retourne la position de la ligne d'une grille face à une grille gagnante, à partir
+     * de leurs masques: c'est la règle de classement commune à tous les comptages par masques.
+     * @param masqueNumeros Le masque des numéros cochés.
+     * @param masqueNumerosChance Le masque des numéros chance cochés.
+     * @param gagnante La grille gagnante du tirage.
+     * @return La position du premier compteur de la ligne.
+     */
+    public static int index ( long masqueNumeros, short masqueNumerosChance, Grille gagnante ) {
+        return index(Long.bitCount(masqueNumeros),
+                Long.bitCount(masqueNumeros & gagnante.getMasqueNumeros()),
+                Integer.bitCount(masqueNumerosChance & 0xFFFF),
+                Integer.bitCount((masqueNumerosChance & gagnante.getMasqueNumerosChance()) & 0xFFFF));
+    }
+
+    /**
+     * Retourne le nombre de combinaisons simples gagnantes d'une ligne dans un rang.
+     * @param index La position de la ligne (voir index()).
+     * @param rang Le rang de gain (de 1 à NB_RANGS).
+     * @return Le nombre de combinaisons simples gagnant à ce rang.
+     */
+    public static int getNbCombinaisons ( int index, int rang ) {
+        return REPARTITIONS[index + rang - 1];
+    }
+
+    /**
+     * Ajoute les compteurs d'une ligne de la table à des compteurs par rang.
+     * @param index La position de la ligne (voir index()).
+     * @param compteurs Les compteurs par rang à incrémenter (index 0 pour le rang 1).
+     */
+    public static void ajouterLigne ( int index, int compteurs[] ) {
+        int b;
+        for ( b = 0; b < NB_RANGS; b++ ) {
+            compteurs[b] += REPARTITIONS[index + b];
+        }
+    }
+
+    /**
+     * Ajoute les compteurs d'une ligne de la table à des compteurs par rang 64 bits.
+     * @param index La position de la ligne (voir index()).
+     * @param compteurs Les compteurs par rang à incrémenter (index 0 pour le rang 1).
+     * @throws ArithmeticException Si un compteur dépasse la capacité d'un long.
+     */
+    public static void ajouterLigne ( int index, long compteurs[] ) {
+        int b;
+        for ( b = 0; b < NB_RANGS; b++ ) {
+            compteurs[b] = Math.addExact(compteurs[b], REPARTITIONS[index + b]);
+        }
+    }
+
+    /**
+     * Ajoute les compteurs d'une ligne de la table, multipliés par un nombre de
+     * grilles identiques, à des compteurs par rang 64 bits.
+     * @param index La position de la ligne (voir index()).
+     * @param compteurs Les compteurs par rang à incrémenter (index 0 pour le rang 1).
+     * @param nb Le nombre de grilles de cette ligne.
+     * @throws ArithmeticException Si un compteur dépasse la capacité d'un long.
+     */
+    public static void ajouterLigne ( int index, long compteurs[], long nb ) {
+        int b;
+        for ( b = 0; b < NB_RANGS; b++ ) {
+            compteurs[b] = Math.addExact(compteurs[b], Math.multiplyExact(nb, REPARTITIONS[index + b]));
+        }
+    }
+
+    /**
+     * Ajoute des grilles d'un rang de gain (tel que rendu par Grille.calculRangGagnant)
+     * à des compteurs par rang. Les rangs complémentaires comptent dans deux rangs.
+     * @param compteurs Les compteurs (une ligne de NB_RANGS cases).
+     * @param debut La position de la ligne dans les compteurs.
+     * @param rang Le rang de gain (0 si perdant).
+     * @param nb Le nombre de grilles à compter.
+     */
+    static void ajouterRang ( int compteurs[], int debut, byte rang, int nb ) {
+        if ( rang > 0 ) {
+            compteurs[debut + rangPrincipal(rang) - 1] += nb;
+            if ( estComplementaire(rang) ) {
+                compteurs[debut + Loto.RANG_CHANCE - 1] += nb;
+            }
+        }
+    }
+
+    /**
+     * Ajoute des grilles d'un rang de gain à des compteurs par rang 64 bits (voir ajouterRang()).
+     * @param compteurs Les compteurs (une ligne de NB_RANGS cases).
+     * @param debut La position de la ligne dans les compteurs.
+     * @param rang Le rang de gain (0 si perdant).
+     * @param nb Le nombre de grilles à compter.
+     * @throws ArithmeticException Si un compteur dépasse la capacité d'un long.
+     */
+    static void ajouterRang ( long compteurs[], int debut, byte rang, long nb ) {
+        if ( rang > 0 ) {
+            compteurs[debut + rangPrincipal(rang) - 1] = Math.addExact(compteurs[debut + rangPrincipal(rang) - 1], nb);
+            if ( estComplementaire(rang) ) {
+                compteurs[debut + Loto.RANG_CHANCE - 1] = Math.addExact(compteurs[debut + Loto.RANG_CHANCE - 1], nb);
+            }
+        }
+    }
+
+    /**
+     * Indique si un rang de gain est complémentaire: 9 (3+6), 10 (4+6), 11 (5+6),
+     * ses grilles étant alors comptées dans deux rangs.
+     */
+    private static boolean estComplementaire ( byte rang ) {
+        return rang >= Loto.RANGS_COMPLEMENTAIRES[0]
+                && rang <= Loto.RANGS_COMPLEMENTAIRES[Loto.RANGS_COMPLEMENTAIRES.length-1];
+    }
+
+    /** Rang "simple" (1 à 6) d'un rang de gain, sans sa part du rang chance. */
+    private static int rangPrincipal ( byte rang ) {
+        return estComplementaire(rang) ? rang - Loto.RANG_CHANCE : rang;
+    }
+
+}
@@ -0,0 +1,108 @@
+package NFA031.LotoJava;
+
+/**
+ * Source aléatoire "xoshiro256**" (Blackman & Vigna).
+ * Le split() rend une copie de l'état courant puis fait sauter cette source
+ * de 2^128 tirages: les sources obtenues ne se chevauchent pas.
+ * @author Aurélie Lucet <aurelie.lucet at gmail.com>
+ */
+public class Xoshiro256Source implements RandomSource {
+
+    // Constantes du saut de 2^128 tirages
+    private final static long SAUT[] = {
+        0x180EC6D33CFD0ABAL, 0xD5A61266F0C9392CL, 0xA9582618E03FC9AAL, 0x39ABDC4529B1661CL
+    };
+
+    // État interne du générateur
+    private long s0, s1, s2, s3;
+
+    /**
+     * Constructeur: état initialisé depuis une graine par SplitMix64.
+     * @param graine La graine de la source.
+     */
+    public Xoshiro256Source ( long graine ) {
+        this.s0 = splitMix64(graine += 0x9E3779B97F4A7C15L);
+        this.s1 = splitMix64(graine += 0x9E3779B97F4A7C15L);
+        this.s2 = splitMix64(graine += 0x9E3779B97F4A7C15L);
+        this.s3 = splitMix64(graine + 0x9E3779B97F4A7C15L);
+    }
+
+    // Constructeur interne par copie d'état
+    private Xoshiro256Source ( long s0, long s1, long s2, long s3 ) {
+        this.s0 = s0;
+        this.s1 = s1;
+        this.s2 = s2;
+        this.s3 = s3;
+    }
+
+    /** Fonction de mélange de SplitMix64. */
+    private static long splitMix64 ( long z ) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public long nextLong () {
+        long resultat = Long.rotateLeft(this.s1 * 5, 7) * 9;
+        long t = this.s1 << 17;
+
+        this.s2 ^= this.s0;
+        this.s3 ^= this.s1;
+        this.s1 ^= this.s2;
+        this.s0 ^= this.s3;
+        this.s2 ^= t;
+        this.s3 = Long.rotateLeft(this.s3, 45);
+        return resultat;
+    }
+
+    /**
+     * Tirage sans biais par multiplication (méthode de Lemire).
+     * @throws IllegalArgumentException Si la borne n'est pas strictement positive.
+     */
+    @Override
+    public int nextInt ( int borne ) {
+        if ( borne > 0 ) {
+            long m = (this.nextLong() >>> 32) * borne;
+            if ( (m & 0xFFFFFFFFL) < borne ) {
+                long seuil = (0x100000000L - borne) % borne;
+                while ( (m & 0xFFFFFFFFL) < seuil ) {
+                    m = (this.nextLong() >>> 32) * borne;
+                }
+            }
+            return (int) (m >>> 32);
+        } else {
+            throw new IllegalArgumentException("La borne fournie (" + borne + ") doit être strictement positive.");
+        }
+    }
+
+    @Override
+    public RandomSource split () {
+        Xoshiro256Source copie = new Xoshiro256Source(this.s0, this.s1, this.s2, this.s3);
+        this.sauter();
+        return copie;
+    }
+
+    /** Avance l'état de 2^128 tirages. */
+    private void sauter () {
+        long t0 = 0, t1 = 0, t2 = 0, t3 = 0;
+        int i, b;
+
+        for ( i = 0; i < SAUT.length; i++ ) {
+            for ( b = 0; b < 64; b++ ) {
+                if ( (SAUT[i] & (1L << b)) != 0 ) {
+                    t0 ^= this.s0;
+                    t1 ^= this.s1;
+                    t2 ^= this.s2;
+                    t3 ^= this.s3;
+                }
+                this.nextLong();
+            }
+        }
+        this.s0 = t0;
+        this.s1 = t1;
+        this.s2 = t2;
+        this.s3 = t3;
+    }
+
+}